@@ -0,0 +1,84 @@
+package org.folio.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import org.folio.model.exception.UserMappingFailedException;
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * A user found by a user search, with the properties needed to match it read from the
+ * response and the full user decoded from its bytes when it is first needed. The bytes of
+ * the user are copied out of the response, so that a user kept after the others of its
+ * page have been matched does not keep the whole response reachable.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ */
+public class ExistingUser {
+
+  private final String externalSystemId;
+  private final String id;
+  private final String username;
+  private final boolean active;
+  private byte[] json;
+  private User user;
+
+  /**
+   * @param json   the bytes of the user search response, the user object is copied
+   * @param offset the start of the user object in json
+   * @param length the length of the user object in json
+   */
+  public ExistingUser(String externalSystemId, String id, String username, boolean active,
+      byte[] json, int offset, int length) {
+
+    this.externalSystemId = externalSystemId;
+    this.id = id;
+    this.username = username;
+    this.active = active;
+    this.json = Arrays.copyOfRange(json, offset, offset + length);
+  }
+
+  public String getExternalSystemId() {
+    return externalSystemId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public boolean isActive() {
+    return active;
+  }
+
+  /**
+   * Whether the full user has been decoded.
+   */
+  public boolean isDecoded() {
+    return user != null;
+  }
+
+  /**
+   * The full user, decoded on the first call.
+   *
+   * @throws UserMappingFailedException if the user does not match the user schema
+   */
+  public User getUser() throws UserMappingFailedException {
+    if (user == null) {
+      try {
+        user = DatabindCodec.mapper().readValue(json, User.class);
+      } catch (IOException e) {
+        throw new UserMappingFailedException("Failed to map user " + new String(json, StandardCharsets.UTF_8));
+      }
+      // no longer keep the bytes reachable through this user
+      json = null;
+    }
+    return user;
+  }
+}
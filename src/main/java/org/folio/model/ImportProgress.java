@@ -0,0 +1,57 @@
+package org.folio.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.folio.rest.jaxrs.model.ImportResponse;
+
+/**
+ * Live counters of an import, updated whenever a partition of users has been processed.
+ */
+public class ImportProgress {
+
+  private final AtomicInteger createdRecords = new AtomicInteger();
+  private final AtomicInteger updatedRecords = new AtomicInteger();
+  private final AtomicInteger unchangedRecords = new AtomicInteger();
+  private final AtomicInteger failedRecords = new AtomicInteger();
+  private final AtomicInteger deactivatedRecords = new AtomicInteger();
+
+  public void add(ImportResponse partitionResponse) {
+    createdRecords.addAndGet(partitionResponse.getCreatedRecords());
+    updatedRecords.addAndGet(partitionResponse.getUpdatedRecords());
+    unchangedRecords.addAndGet(partitionResponse.getUnchangedRecords());
+    failedRecords.addAndGet(partitionResponse.getFailedRecords());
+  }
+
+  /**
+   * Count a user deactivated because it is missing in the import.
+   *
+   * @return the number of deactivated users
+   */
+  public int addDeactivated() {
+    return deactivatedRecords.incrementAndGet();
+  }
+
+  public int getCreatedRecords() {
+    return createdRecords.get();
+  }
+
+  public int getUpdatedRecords() {
+    return updatedRecords.get();
+  }
+
+  public int getUnchangedRecords() {
+    return unchangedRecords.get();
+  }
+
+  public int getFailedRecords() {
+    return failedRecords.get();
+  }
+
+  public int getDeactivatedRecords() {
+    return deactivatedRecords.get();
+  }
+
+  public int getProcessedRecords() {
+    return getCreatedRecords() + getUpdatedRecords() + getUnchangedRecords() + getFailedRecords();
+  }
+}
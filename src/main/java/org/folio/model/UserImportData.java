@@ -5,6 +5,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
 
 import lombok.Getter;
 
@@ -13,6 +17,8 @@ import org.folio.rest.jaxrs.model.Department;
 import org.folio.rest.jaxrs.model.RequestPreference;
 import org.folio.rest.jaxrs.model.User;
 import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.jaxrs.model.UserdataimportCollection.ImportMode;
+import org.folio.util.UserFingerprintStore;
 
 @Getter
 public class UserImportData {
@@ -23,16 +29,24 @@ public class UserImportData {
   private final Map<String, RequestPreference> requestPreferences;
   private final boolean deactivateMissingUsers;
   private final boolean updateOnlyPresentFields;
+  private final ImportMode importMode;
   private final String sourceType;
+  private final ImportProgress progress = new ImportProgress();
 
   private UserSystemData systemData;
+  private UserMappingPlan mappingPlan;
+  private Consumer<SingleUserImportResponse> userResultHandler;
+  private Future<Void> systemDataRefresh;
+  private UserFingerprintStore fingerprints;
 
   public UserImportData(UserdataimportCollection userdataCollection) {
     this.users = userdataCollection.getUsers();
     this.deactivateMissingUsers = Boolean.TRUE.equals(userdataCollection.getDeactivateMissingUsers());
     this.updateOnlyPresentFields = Boolean.TRUE.equals(userdataCollection.getUpdateOnlyPresentFields());
+    this.importMode = userdataCollection.getImportMode() == null ? ImportMode.UPSERT : userdataCollection.getImportMode();
     this.sourceType = userdataCollection.getSourceType();
-    this.requestPreferences = fetchRequestPreferences(userdataCollection);
+    this.requestPreferences = new HashMap<>();
+    userdataCollection.getUsers().forEach(this::addRequestPreference);
 
     if (userdataCollection.getIncluded() == null) {
       this.departments = Collections.emptySet();
@@ -43,17 +57,68 @@ public class UserImportData {
     }
   }
 
-  private Map<String, RequestPreference> fetchRequestPreferences(UserdataimportCollection userdataCollection) {
-    final Map<String, RequestPreference> requestPreferenceMap = new HashMap<>();
-    for (User user : userdataCollection.getUsers()) {
-      requestPreferenceMap.put(user.getUsername(), user.getRequestPreference());
-      user.setRequestPreference(null);
+  /**
+   * Move the request preference of a user to the request preferences of the import.
+   */
+  public void addRequestPreference(User user) {
+    requestPreferences.put(user.getUsername(), user.getRequestPreference());
+    user.setRequestPreference(null);
+  }
+
+  /**
+   * Forget the request preference of a user that has been imported.
+   */
+  public void removeRequestPreference(User user) {
+    requestPreferences.remove(user.getUsername());
+  }
+
+  /**
+   * Report the outcome of each user to the handler as soon as the partition of the user
+   * has been processed. The partition responses then omit the failed users that have
+   * been reported.
+   */
+  public UserImportData withUserResultHandler(Consumer<SingleUserImportResponse> userResultHandler) {
+    this.userResultHandler = userResultHandler;
+    return this;
+  }
+
+  public boolean isReportingUserResults() {
+    return userResultHandler != null;
+  }
+
+  public void reportUserResult(SingleUserImportResponse result) {
+    if (userResultHandler != null) {
+      userResultHandler.accept(result);
     }
-    return requestPreferenceMap;
+  }
+
+  /**
+   * Skip the users whose fingerprint is unchanged and record the fingerprints of the
+   * imported users.
+   */
+  public UserImportData withFingerprints(UserFingerprintStore fingerprints) {
+    this.fingerprints = fingerprints;
+    return this;
   }
 
   public UserImportData withSystemData(UserSystemData systemData) {
     this.systemData = systemData;
+    this.mappingPlan = UserMappingPlan.compile(sourceType, systemData);
     return this;
   }
+
+  /**
+   * Replace the system data with freshly loaded system data. The system data is loaded
+   * once per import, later calls complete with the first refresh. If loading fails the
+   * system data is kept.
+   */
+  public synchronized Future<Void> refreshSystemData(Supplier<Future<UserSystemData>> loader) {
+    if (systemDataRefresh == null) {
+      systemDataRefresh = loader.get()
+          .onSuccess(this::withSystemData)
+          .<Void>mapEmpty()
+          .otherwiseEmpty();
+    }
+    return systemDataRefresh;
+  }
 }
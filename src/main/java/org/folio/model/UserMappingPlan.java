@@ -0,0 +1,286 @@
+package org.folio.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+
+import org.folio.model.exception.CustomFieldMappingFailedException;
+import org.folio.model.exception.DepartmentMappingFailedException;
+import org.folio.model.exception.PatronGroupMappingFailedException;
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.CustomField;
+import org.folio.rest.jaxrs.model.CustomFields;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * Maps the users of an import from the import format to the mod-users format: sourceType
+ * prefix, patron group, address types, preferred contact type, departments and custom fields.
+ *
+ * <p>The plan is compiled once per import from the sourceType and the {@link UserSystemData}
+ * into a fixed array of steps. Steps that cannot change a user are left out, for example the
+ * sourceType prefix if there is no sourceType, and steps are specialized for the reference
+ * data, for example if the tenant has no custom fields any custom field fails the user.
+ */
+public final class UserMappingPlan {
+
+  private static final String[] PREFERRED_CONTACT_TYPE_NAMES = {"mail", "email", "text", "phone", "mobile"};
+  private static final String[] PREFERRED_CONTACT_TYPE_IDS = {"001", "002", "003", "004", "005"};
+
+  @FunctionalInterface
+  interface Step {
+    void map(User user);
+  }
+
+  private final Step[] steps;
+
+  /**
+   * The properties of a user that {@link #map} changes, taken before the user is mapped,
+   * to restore the user as it was received without copying all of it.
+   */
+  public static final class Snapshot {
+
+    private final User user;
+    private final String externalSystemId;
+    private final String patronGroup;
+    private final Set<String> departments;
+    private final Personal personal;
+    private final List<Address> addresses;
+    private final String[] addressTypeIds;
+    private final String preferredContactTypeId;
+    private final Map<String, Object> customFields;
+
+    private Snapshot(User user) {
+      this.user = user;
+      this.externalSystemId = user.getExternalSystemId();
+      this.patronGroup = user.getPatronGroup();
+      this.departments = user.getDepartments();
+      this.personal = user.getPersonal();
+      this.addresses = personal == null ? null : personal.getAddresses();
+      if (addresses == null) {
+        this.addressTypeIds = null;
+      } else {
+        this.addressTypeIds = new String[addresses.size()];
+        for (int i = 0; i < addressTypeIds.length; i++) {
+          addressTypeIds[i] = addresses.get(i).getAddressTypeId();
+        }
+      }
+      this.preferredContactTypeId = personal == null ? null : personal.getPreferredContactTypeId();
+      CustomFields userCustomFields = user.getCustomFields();
+      this.customFields = userCustomFields == null || userCustomFields.getAdditionalProperties().isEmpty()
+          ? null : new HashMap<>(userCustomFields.getAdditionalProperties());
+    }
+
+    /**
+     * Undo the mapping of the user.
+     */
+    public void restore() {
+      user.setExternalSystemId(externalSystemId);
+      user.setPatronGroup(patronGroup);
+      user.setDepartments(departments);
+      user.setPersonal(personal);
+      if (personal != null) {
+        if (addresses != null) {
+          for (int i = 0; i < addressTypeIds.length; i++) {
+            addresses.get(i).setAddressTypeId(addressTypeIds[i]);
+          }
+        }
+        personal.setAddresses(addresses);
+        personal.setPreferredContactTypeId(preferredContactTypeId);
+      }
+      if (customFields != null) {
+        user.getCustomFields().getAdditionalProperties().putAll(customFields);
+      }
+    }
+  }
+
+  private UserMappingPlan(Step[] steps) {
+    this.steps = steps;
+  }
+
+  public static Snapshot snapshot(User user) {
+    return new Snapshot(user);
+  }
+
+  public static UserMappingPlan compile(String sourceType, UserSystemData systemData) {
+    List<Step> steps = new ArrayList<>();
+    if (StringUtils.isNotEmpty(sourceType)) {
+      String prefix = sourceType + "_";
+      steps.add(user -> user.setExternalSystemId(prefix + user.getExternalSystemId()));
+    }
+    Map<String, String> patronGroups = systemData.getPatronGroups();
+    steps.add(user -> mapPatronGroup(user, patronGroups));
+    Map<String, String> addressTypes = systemData.getAddressTypes();
+    steps.add(user -> mapPersonal(user, addressTypes));
+    if (systemData.getDepartments() == null || systemData.getDepartments().isEmpty()) {
+      steps.add(UserMappingPlan::failOnDepartments);
+    } else {
+      steps.add(user -> mapDepartments(user, systemData));
+    }
+    if (systemData.getCustomFields() == null || systemData.getCustomFields().isEmpty()) {
+      steps.add(UserMappingPlan::failOnCustomFields);
+    } else {
+      steps.add(user -> mapCustomFields(user, systemData));
+    }
+    return new UserMappingPlan(steps.toArray(new Step[0]));
+  }
+
+  public void map(User user) {
+    for (Step step : steps) {
+      step.map(user);
+    }
+  }
+
+  int getStepCount() {
+    return steps.length;
+  }
+
+  public static void mapPatronGroup(User user, Map<String, String> patronGroups) {
+    String patronGroupName = user.getPatronGroup();
+    if (patronGroupName == null) {
+      return;
+    }
+    String patronGroupId = patronGroups.get(patronGroupName);
+    if (patronGroupId == null) {
+      throw new PatronGroupMappingFailedException(patronGroupName);
+    }
+    user.setPatronGroup(patronGroupId);
+  }
+
+  private static void mapPersonal(User user, Map<String, String> addressTypes) {
+    var personal = user.getPersonal();
+    if (personal == null) {
+      return;
+    }
+    List<Address> addresses = personal.getAddresses();
+    if (addresses != null && !addresses.isEmpty()) {
+      List<Address> mappedAddresses = new ArrayList<>(addresses.size());
+      for (Address address : addresses) {
+        String addressTypeId = address.getAddressTypeId() == null ? null : addressTypes.get(address.getAddressTypeId());
+        if (addressTypeId != null) {
+          address.setAddressTypeId(addressTypeId);
+          mappedAddresses.add(address);
+        }
+      }
+      personal.setAddresses(mappedAddresses);
+    }
+    personal.setPreferredContactTypeId(preferredContactTypeId(personal.getPreferredContactTypeId()));
+  }
+
+  private static String preferredContactTypeId(String name) {
+    if (name == null) {
+      return null;
+    }
+    for (int i = 0; i < PREFERRED_CONTACT_TYPE_NAMES.length; i++) {
+      if (PREFERRED_CONTACT_TYPE_NAMES[i].equalsIgnoreCase(name)) {
+        return PREFERRED_CONTACT_TYPE_IDS[i];
+      }
+    }
+    return null;
+  }
+
+  private static void failOnDepartments(User user) {
+    if (user.getDepartments() != null && !user.getDepartments().isEmpty()) {
+      throw new DepartmentMappingFailedException(new TreeSet<>(user.getDepartments()));
+    }
+  }
+
+  private static void mapDepartments(User user, UserSystemData systemData) {
+    Set<String> departments = user.getDepartments();
+    if (departments == null || departments.isEmpty()) {
+      return;
+    }
+    Set<String> departmentIds = new HashSet<>();
+    Set<String> missedDepartmentNames = null;
+    for (String departmentName : departments) {
+      Department department = systemData.getDepartmentByName(departmentName);
+      if (department != null) {
+        departmentIds.add(department.getId());
+      } else {
+        if (missedDepartmentNames == null) {
+          missedDepartmentNames = new TreeSet<>();
+        }
+        missedDepartmentNames.add(departmentName);
+      }
+    }
+    if (missedDepartmentNames != null) {
+      throw new DepartmentMappingFailedException(missedDepartmentNames);
+    }
+    user.setDepartments(departmentIds);
+  }
+
+  private static void failOnCustomFields(User user) {
+    CustomFields customFields = user.getCustomFields();
+    if (customFields != null && !customFields.getAdditionalProperties().isEmpty()) {
+      throw new CustomFieldMappingFailedException(new TreeSet<>(customFields.getAdditionalProperties().keySet()),
+          new TreeMap<>());
+    }
+  }
+
+  private static void mapCustomFields(User user, UserSystemData systemData) {
+    CustomFields customFields = user.getCustomFields();
+    if (customFields == null) {
+      return;
+    }
+    Map<String, Object> userCustomFields = customFields.getAdditionalProperties();
+    Set<String> missingRefIds = null;
+    Map<String, Set<String>> missingOptions = new TreeMap<>();
+    for (Map.Entry<String, Object> entry : userCustomFields.entrySet()) {
+      String refId = entry.getKey();
+      CustomField definition = systemData.getCustomFieldByRefId(refId);
+      if (definition == null) {
+        if (missingRefIds == null) {
+          missingRefIds = new TreeSet<>();
+        }
+        missingRefIds.add(refId);
+      } else if (UserSystemData.isSelectableField(definition)) {
+        mapOptionIds(entry, systemData, missingOptions);
+      }
+    }
+    if (missingRefIds != null) {
+      throw new CustomFieldMappingFailedException(missingRefIds, missingOptions);
+    } else if (!missingOptions.isEmpty()) {
+      throw new CustomFieldMappingFailedException(Set.of(), missingOptions);
+    }
+  }
+
+  private static void mapOptionIds(Map.Entry<String, Object> entry, UserSystemData systemData,
+      Map<String, Set<String>> missingOptions) {
+
+    String refId = entry.getKey();
+    Object value = entry.getValue();
+    if (value instanceof String) {
+      String optionId = optionId(systemData, refId, value, missingOptions);
+      if (optionId != null) {
+        entry.setValue(optionId);
+      }
+    } else if (value instanceof List<?> values) {
+      List<String> optionIds = new ArrayList<>(values.size());
+      for (Object v : values) {
+        String optionId = optionId(systemData, refId, v, missingOptions);
+        if (optionId != null) {
+          optionIds.add(optionId);
+        }
+      }
+      entry.setValue(optionIds);
+    }
+  }
+
+  private static String optionId(UserSystemData systemData, String refId, Object value,
+      Map<String, Set<String>> missingOptions) {
+
+    String optionId = systemData.getOptionId(refId, value);
+    if (optionId == null) {
+      missingOptions.computeIfAbsent(refId, s -> new TreeSet<>()).add((String) value);
+    }
+    return optionId;
+  }
+}
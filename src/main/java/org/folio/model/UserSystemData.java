@@ -1,16 +1,30 @@
 package org.folio.model;
 
+import static org.folio.rest.jaxrs.model.CustomField.Type.MULTI_SELECT_DROPDOWN;
+import static org.folio.rest.jaxrs.model.CustomField.Type.RADIO_BUTTON;
+import static org.folio.rest.jaxrs.model.CustomField.Type.SINGLE_SELECT_DROPDOWN;
+
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 
 import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.SelectFieldOption;
 
+/**
+ * The reference data of the tenant needed to map the users of an import.
+ *
+ * <p>The departments and custom fields are indexed when the system data is built, the
+ * indexes are not updated if the departments or custom fields change afterwards.
+ */
 @Getter
-@Builder
 public class UserSystemData {
 
   private final Map<String, String> patronGroups;
@@ -18,4 +32,83 @@ public class UserSystemData {
   private final Map<String, String> servicePoints;
   private final Set<Department> departments;
   private final Set<CustomField> customFields;
+
+  @Getter(AccessLevel.NONE)
+  private final Map<String, Department> departmentsByName;
+  @Getter(AccessLevel.NONE)
+  private final Map<String, CustomField> customFieldsByRefId;
+  /** refId of a selectable custom field to the option ids by option value */
+  @Getter(AccessLevel.NONE)
+  private final Map<String, Map<String, String>> optionIdsByRefId;
+
+  @Builder
+  private UserSystemData(Map<String, String> patronGroups, Map<String, String> addressTypes,
+      Map<String, String> servicePoints, Set<Department> departments, Set<CustomField> customFields) {
+
+    this.patronGroups = patronGroups;
+    this.addressTypes = addressTypes;
+    this.servicePoints = servicePoints;
+    this.departments = departments;
+    this.customFields = customFields;
+    this.departmentsByName = index(departments, Department::getName);
+    this.customFieldsByRefId = index(customFields, CustomField::getRefId);
+    this.optionIdsByRefId = indexOptionIds(customFields);
+  }
+
+  /**
+   * @return the department with the name, null if there is none
+   */
+  public Department getDepartmentByName(String name) {
+    return departmentsByName.get(name);
+  }
+
+  /**
+   * @return the custom field with the refId, null if there is none
+   */
+  public CustomField getCustomFieldByRefId(String refId) {
+    return customFieldsByRefId.get(refId);
+  }
+
+  /**
+   * @return the id of the option with the value of the selectable custom field with the
+   *     refId, null if there is none
+   */
+  public String getOptionId(String refId, Object value) {
+    return optionIdsByRefId.getOrDefault(refId, Collections.emptyMap()).get(value);
+  }
+
+  private static <T> Map<String, T> index(Set<T> values, Function<T, String> key) {
+    if (values == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, T> map = new HashMap<>();
+    for (T value : values) {
+      map.putIfAbsent(key.apply(value), value);
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  private static Map<String, Map<String, String>> indexOptionIds(Set<CustomField> customFields) {
+    if (customFields == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Map<String, String>> map = new HashMap<>();
+    for (CustomField customField : customFields) {
+      if (!isSelectableField(customField) || customField.getSelectField() == null
+          || customField.getSelectField().getOptions() == null) {
+        continue;
+      }
+      Map<String, String> optionIds = new HashMap<>();
+      for (SelectFieldOption option : customField.getSelectField().getOptions().getValues()) {
+        optionIds.putIfAbsent(option.getValue(), option.getId());
+      }
+      map.putIfAbsent(customField.getRefId(), Collections.unmodifiableMap(optionIds));
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  static boolean isSelectableField(CustomField customField) {
+    return customField.getType() == RADIO_BUTTON || customField.getType() == MULTI_SELECT_DROPDOWN
+        || customField.getType() == SINGLE_SELECT_DROPDOWN;
+  }
 }
@@ -0,0 +1,11 @@
+package org.folio.model.exception;
+
+public class UserAlreadyExistsException extends Exception {
+
+  private static final long serialVersionUID = 1L;
+
+  public UserAlreadyExistsException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,98 @@
+package org.folio.rest.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+
+import org.folio.model.SingleUserImportResponse;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.util.BatchPipeline;
+
+/**
+ * Writes the outcome of each user of an import as a line of newline delimited JSON as soon
+ * as the partition of the user has been processed, followed by a summary line.
+ *
+ * <p>The status code 200 is sent with the first line, a failure of the import is reported
+ * in the {@code error} of the summary. The {@code failedUsers} of the summary only contain
+ * the failed users that have not been written as a line.
+ *
+ * <p>The lines are not written faster than the client reads them: the import checks
+ * {@link #writeQueueFull()} and waits for the {@link #drainHandler(Handler)}, or lets
+ * {@link #throttle(BatchPipeline)} do so.
+ */
+class ImportResultStream {
+
+  static final String CONTENT_TYPE = "application/x-ndjson";
+
+  private final HttpServerResponse response;
+  private boolean started;
+
+  ImportResultStream(HttpServerResponse response) {
+    this.response = response;
+  }
+
+  void userResult(SingleUserImportResponse result) {
+    JsonObject line = new JsonObject()
+        .put("externalSystemId", result.getExternalSystemId())
+        .put("username", result.getUsername())
+        .put("status", result.getStatus().name());
+    if (result.getErrorMessage() != null) {
+      line.put("errorMessage", result.getErrorMessage());
+    }
+    write(line);
+  }
+
+  void end(ImportResponse summary) {
+    write(new JsonObject().put("summary", JsonObject.mapFrom(summary)));
+    if (!isGone()) {
+      response.end();
+    }
+  }
+
+  /**
+   * @return true if the client reads the lines slower than they are written
+   */
+  boolean writeQueueFull() {
+    return !isGone() && response.writeQueueFull();
+  }
+
+  /**
+   * Set the handler that is called when the write queue is no longer full.
+   */
+  void drainHandler(Handler<Void> handler) {
+    response.drainHandler(handler);
+  }
+
+  /**
+   * Pause the pipeline after a batch while the write queue is full and resume it when the
+   * queue drains or the connection is closed.
+   */
+  <T> void throttle(BatchPipeline<T, ?> pipeline) {
+    pipeline.batchCompletionHandler(batch -> {
+      if (writeQueueFull()) {
+        pipeline.pause();
+      }
+    });
+    response.drainHandler(v -> pipeline.resume());
+    // the lines of a closed connection are dropped, the import must not wait for them
+    response.closeHandler(v -> pipeline.resume());
+  }
+
+  private boolean isGone() {
+    return response.ended() || response.closed();
+  }
+
+  private void write(JsonObject line) {
+    if (isGone()) {
+      return;
+    }
+    if (!started) {
+      started = true;
+      response.setStatusCode(200)
+          .setChunked(true)
+          .putHeader(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE);
+    }
+    response.write(line.encode() + "\n");
+  }
+}
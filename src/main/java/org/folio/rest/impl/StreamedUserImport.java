@@ -0,0 +1,317 @@
+package org.folio.rest.impl;
+
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_IMPORT_USERS;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServerRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.SingleUserImportResponse;
+import org.folio.model.UserImportData;
+import org.folio.rest.jaxrs.model.FailedUser;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.util.BatchPipeline;
+import org.folio.util.ImportConfig;
+import org.folio.util.UserStreamParser;
+
+/**
+ * A user import whose request body is parsed while it is received.
+ *
+ * <p>The users are passed to the partition pipeline as soon as they are parsed. When more
+ * than {@link ImportConfig#streamBufferSize()} users wait for a partition the request is
+ * paused, it is resumed when half of them have been taken. When the results are streamed
+ * and the client reads them slower than they are written, no new partition is started
+ * until the written results have drained.
+ *
+ * <p>RMB calls the streaming endpoint once per chunk of the request body, the import of a
+ * request is looked up by the stream id. It is removed when the request body is complete,
+ * when the request is aborted and when the connection is closed.
+ */
+class StreamedUserImport implements UserStreamParser.Listener {
+
+  private static final Logger LOGGER = LogManager.getLogger(StreamedUserImport.class);
+
+  private static final Map<String, StreamedUserImport> IMPORTS = new ConcurrentHashMap<>();
+
+  private final UserImportAPI importApi;
+  private final Map<String, String> okapiHeaders;
+  private final UserdataimportCollection options;
+  private final HttpServerRequest request;
+  private final UserStreamParser parser;
+  private final int highWaterMark;
+  private final ImportResultStream results;
+
+  private final Deque<User> waitingUsers = new ArrayDeque<>();
+  private final List<FailedUser> invalidUsers = new ArrayList<>();
+  private final List<String> trailingFields = new ArrayList<>();
+  private final Promise<ImportResponse> result = Promise.promise();
+
+  private UserImportData importData;
+  private BatchPipeline<User, ImportResponse> pipeline;
+  private int receivedUsers;
+  private int invalidUserCount;
+  private boolean started;
+  private boolean ended;
+  private boolean paused;
+  private String failure;
+
+  /**
+   * @param options      the import options given as query parameters, they override the
+   *                     options of the request body
+   * @param request      the request to pause and resume, may be null
+   * @param parserFactory creates the parser of the request body
+   * @param results      writes the outcome of each user as soon as it is known, may be null
+   */
+  StreamedUserImport(UserImportAPI importApi, Map<String, String> okapiHeaders,
+      UserdataimportCollection options, HttpServerRequest request,
+      Function<UserStreamParser.Listener, UserStreamParser> parserFactory, ImportResultStream results) {
+
+    this.importApi = importApi;
+    this.okapiHeaders = okapiHeaders;
+    this.options = options;
+    this.request = request;
+    this.parser = parserFactory.apply(this);
+    this.highWaterMark = ImportConfig.streamBufferSize();
+    this.results = results;
+  }
+
+  ImportResultStream getResults() {
+    return results;
+  }
+
+  static StreamedUserImport get(String streamId, Supplier<StreamedUserImport> factory) {
+    return IMPORTS.computeIfAbsent(streamId, id -> factory.get());
+  }
+
+  static StreamedUserImport remove(String streamId) {
+    return IMPORTS.remove(streamId);
+  }
+
+  /**
+   * @return the number of imports whose request body is being received
+   */
+  static int size() {
+    return IMPORTS.size();
+  }
+
+  /**
+   * Called when the connection of the request is closed. An import whose request body is
+   * incomplete is stopped, a complete import goes on without waiting for its results to be
+   * read.
+   */
+  static void connectionClosed(String streamId, StreamedUserImport streamedImport) {
+    IMPORTS.remove(streamId, streamedImport);
+    if (!streamedImport.ended) {
+      streamedImport.fail("Connection closed");
+    } else if (streamedImport.pipeline != null) {
+      streamedImport.pipeline.resume();
+    }
+  }
+
+  void feed(byte[] chunk) throws IOException {
+    parser.feed(chunk);
+  }
+
+  /**
+   * Signal the end of the request body.
+   *
+   * @return the response of the import, completes when all users have been processed
+   */
+  Future<ImportResponse> end() {
+    try {
+      parser.end();
+    } catch (IOException e) {
+      return fail("Invalid request body: " + e.getMessage());
+    }
+    ended = true;
+    if (!started) {
+      complete(new ImportResponse()
+          .withMessage("No users to import.")
+          .withTotalRecords(0)
+          .withCreatedRecords(0)
+          .withUpdatedRecords(0)
+          .withUnchangedRecords(0)
+          .withFailedRecords(0)
+          .withFailedUsers(new ArrayList<>()));
+    } else if (pipeline != null) {
+      pipeline.end();
+    }
+    return result.future();
+  }
+
+  /**
+   * Stop the import because of an unrecoverable error. The partitions that are already
+   * being processed are completed, missing users are not deactivated.
+   */
+  Future<ImportResponse> fail(String errorMessage) {
+    failure = errorMessage;
+    ended = true;
+    waitingUsers.clear();
+    resume();
+    if (!started) {
+      complete(importApi.processErrorResponse(List.of(), errorMessage));
+    } else if (pipeline != null) {
+      pipeline.fail(new IllegalStateException(errorMessage));
+    }
+    return result.future();
+  }
+
+  @Override
+  public void header(UserdataimportCollection header) {
+    if (options.getSourceType() != null) {
+      header.setSourceType(options.getSourceType());
+    }
+    if (options.getDeactivateMissingUsers() != null) {
+      header.setDeactivateMissingUsers(options.getDeactivateMissingUsers());
+    }
+    if (options.getUpdateOnlyPresentFields() != null) {
+      header.setUpdateOnlyPresentFields(options.getUpdateOnlyPresentFields());
+    }
+    importData = new UserImportData(header);
+    if (results != null) {
+      importData.withUserResultHandler(results::userResult);
+    }
+  }
+
+  @Override
+  public void user(User user) {
+    receivedUsers++;
+    if (ended) {
+      return;
+    }
+    importData.addRequestPreference(user);
+    if (!started) {
+      start();
+    }
+    if (pipeline != null) {
+      pipeline.add(user);
+    } else {
+      waitingUsers.add(user);
+    }
+    if (!paused && getWaitingCount() >= highWaterMark && request != null && !isStarved()) {
+      paused = true;
+      request.pause();
+    }
+  }
+
+  @Override
+  public void invalidUser(String externalSystemId, String username, String errorMessage) {
+    receivedUsers++;
+    invalidUserCount++;
+    if (results != null) {
+      results.userResult(SingleUserImportResponse.failed(externalSystemId, username, -1, errorMessage));
+      return;
+    }
+    invalidUsers.add(new FailedUser()
+        .withExternalSystemId(externalSystemId)
+        .withUsername(username)
+        .withErrorMessage(errorMessage));
+  }
+
+  @Override
+  public void trailingField(String name) {
+    if (!"totalRecords".equals(name)) {
+      trailingFields.add(name);
+    }
+  }
+
+  /**
+   * Start the import when the first user has been parsed. The system data is fetched
+   * and the existing users are listed while more users are received.
+   */
+  private void start() {
+    started = true;
+    importApi.prepareUserImportData(importData, okapiHeaders)
+        .compose(data -> importApi.importUsers(data, okapiHeaders, this::attach))
+        .otherwise(e -> importApi.processErrorResponse(List.of(), e.getMessage()))
+        .onSuccess(this::complete);
+  }
+
+  /**
+   * Called when the import is ready to process users.
+   */
+  private void attach(BatchPipeline<User, ImportResponse> partitionPipeline) {
+    pipeline = partitionPipeline;
+    pipeline.batchCompletionHandler(partition -> {
+      partition.forEach(importData::removeRequestPreference);
+      if (results != null && results.writeQueueFull()) {
+        pipeline.pause();
+      }
+      if (getWaitingCount() <= highWaterMark / 2 || isStarved()) {
+        resume();
+      }
+    });
+    if (results != null) {
+      results.drainHandler(v -> {
+        pipeline.resume();
+        if (isStarved()) {
+          resume();
+        }
+      });
+    }
+    if (failure != null) {
+      pipeline.fail(new IllegalStateException(failure));
+      return;
+    }
+    pipeline.addAll(waitingUsers);
+    waitingUsers.clear();
+    if (ended) {
+      pipeline.end();
+    } else if (isStarved()) {
+      resume();
+    }
+  }
+
+  private void complete(ImportResponse response) {
+    // the import may finish before all users are received if it fails early
+    ended = true;
+    waitingUsers.clear();
+    resume();
+
+    int notProcessed = receivedUsers - invalidUserCount - response.getTotalRecords();
+    response.getFailedUsers().addAll(invalidUsers);
+    response.setFailedRecords(response.getFailedRecords() + invalidUserCount + Math.max(0, notProcessed));
+    response.setTotalRecords(Math.max(receivedUsers, response.getTotalRecords()));
+    if (!trailingFields.isEmpty()) {
+      LOGGER.warn("Ignored fields following the users array: {}", trailingFields);
+      response.setMessage(response.getMessage() + " Ignored fields following the users array: " + trailingFields);
+    }
+    if (response.getError() == null && notProcessed > 0) {
+      response.setError(FAILED_TO_IMPORT_USERS);
+    }
+    result.tryComplete(response);
+  }
+
+  /**
+   * @return true if no partition is running although the pipeline is not paused: the users
+   *     waiting are fewer than a partition, the request must not stay paused
+   */
+  private boolean isStarved() {
+    return pipeline != null && pipeline.getInFlight() == 0 && !pipeline.isPaused();
+  }
+
+  private int getWaitingCount() {
+    return pipeline == null ? waitingUsers.size() : pipeline.getPendingCount();
+  }
+
+  private void resume() {
+    if (paused) {
+      paused = false;
+      request.resume();
+    }
+  }
+}
@@ -2,7 +2,10 @@ package org.folio.rest.impl;
 
 import static org.folio.rest.impl.UserImportAPIConstants.ERROR_MESSAGE;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_ADD_PERMISSIONS_FOR_USER_WITH_EXTERNAL_SYSTEM_ID;
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_CREATE_EXISTING_USER_WITH_EXTERNAL_SYSTEM_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID;
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_DELETE_PERMISSION_USER_WITH_ID;
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_DELETE_USER_WITH_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_IMPORT_USERS;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USERS;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USER_SEARCH_RESPONSE;
@@ -10,6 +13,8 @@ import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USER_
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_UPDATE_USER_WITH_EXTERNAL_SYSTEM_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.PERMS_USERS_ENDPOINT;
 import static org.folio.rest.impl.UserImportAPIConstants.USERS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.USER_ALREADY_EXISTS_WITH_EXTERNAL_SYSTEM_ID;
+import static org.folio.rest.impl.UserImportAPIConstants.USER_DOES_NOT_EXIST_WITH_EXTERNAL_SYSTEM_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY;
 import static org.folio.rest.impl.UserImportAPIConstants.USER_DEACTIVATION_SKIPPED;
 import static org.folio.rest.impl.UserImportAPIConstants.USER_SCHEMA_MISMATCH;
@@ -17,59 +22,108 @@ import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_CREATED;
 import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_NO_CONTENT;
 import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_OK;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.client.HttpResponse;
+import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import org.folio.model.ExistingUser;
+import org.folio.model.ImportProgress;
 import org.folio.model.SingleUserImportResponse;
 import org.folio.model.UserImportData;
+import org.folio.model.UserMappingPlan;
 import org.folio.model.UserRecordImportStatus;
 import org.folio.model.UserSystemData;
+import org.folio.model.exception.UserAlreadyExistsException;
 import org.folio.model.exception.UserMappingFailedException;
+import org.folio.rest.RestVerticle;
+import org.folio.rest.annotations.Stream;
 import org.folio.rest.annotations.Validate;
 import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.Department;
 import org.folio.rest.jaxrs.model.FailedUser;
+import org.folio.rest.jaxrs.model.ImportJob;
 import org.folio.rest.jaxrs.model.ImportResponse;
 import org.folio.rest.jaxrs.model.RequestPreference;
 import org.folio.rest.jaxrs.model.User;
 import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.jaxrs.model.UserdataimportCollection.ImportMode;
 import org.folio.rest.jaxrs.resource.UserImport;
+import org.folio.rest.tools.utils.TenantTool;
 import org.folio.service.AddressTypeService;
 import org.folio.service.CustomFieldsService;
 import org.folio.service.DepartmentsService;
+import org.folio.service.ImportJobService;
 import org.folio.service.PatronGroupService;
 import org.folio.service.ServicePointsService;
+import org.folio.service.UserBatchService;
 import org.folio.service.UserDataProcessingService;
 import org.folio.service.UserPreferenceService;
+import org.folio.util.AdaptiveBatchSizer;
+import org.folio.util.BatchPipeline;
+import org.folio.util.ExistingUserIndex;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.ImportConfig;
+import org.folio.util.ImportStreamParser;
+import org.folio.util.JsonBufferWriter;
+import org.folio.util.ReferenceDataCache;
+import org.folio.util.NdjsonUserStreamParser;
 import org.folio.util.StringUtil;
+import org.folio.util.ThrottledRunner;
+import org.folio.util.UserFingerprintStore;
+import org.folio.util.UserIdCache;
+import org.folio.util.UserIds;
+import org.folio.util.UserNormalizer;
+import org.folio.util.UserSearchResponseReader;
+import org.folio.util.UserSearchResponseReader.UserSearchResult;
+import org.folio.util.UserStreamParser;
 
 public class UserImportAPI implements UserImport {
 
+  /**
+   * A user to be created or updated, an unchanged user is not written.
+   */
+  private record UserWrite(User user, boolean update, boolean unchanged) {
+  }
+
+  /**
+   * A missing user to be deactivated, the full user record is supplied when needed.
+   */
+  private record Deactivation(String externalSystemId, String username, Supplier<Future<User>> user) {
+  }
+
   private static final Logger LOGGER = LogManager.getLogger(UserImportAPI.class);
 
   private final CustomFieldsService cfService;
@@ -79,16 +133,20 @@ public class UserImportAPI implements UserImport {
   private final DepartmentsService depService;
   private final PatronGroupService pgService;
   private final ServicePointsService spService;
+  private final ImportJobService jobService;
+  private final UserBatchService batchService;
 
 
   public UserImportAPI() {
     cfService = new CustomFieldsService();
     depService = new DepartmentsService();
-    udpService = new UserDataProcessingService(depService, cfService);
+    udpService = new UserDataProcessingService();
     prefService = new UserPreferenceService();
     addressService = new AddressTypeService();
     pgService = new PatronGroupService();
     spService = new ServicePointsService();
+    jobService = new ImportJobService();
+    batchService = new UserBatchService();
   }
 
   /**
@@ -96,21 +154,26 @@ public class UserImportAPI implements UserImport {
    */
   @Override
   @Validate
-  public void postUserImport(UserdataimportCollection userCollection, RoutingContext routingContext,
-      Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
-      Context vertxContext) {
-
+  public void postUserImport(boolean streamResults, UserdataimportCollection userCollection,
+      RoutingContext routingContext, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    if (streamResults) {
+      ImportResultStream results = new ImportResultStream(routingContext.response());
+      if (userCollection.getTotalRecords() == 0) {
+        results.end(emptyResponse());
+        return;
+      }
+      runImport(new UserImportData(userCollection).withUserResultHandler(results::userResult), okapiHeaders, results)
+          .onComplete(handler -> results.end(handler.result()));
+      return;
+    }
     if (userCollection.getTotalRecords() == 0) {
-      ImportResponse emptyResponse = new ImportResponse()
-          .withMessage("No users to import.")
-          .withTotalRecords(0);
       asyncResultHandler
-          .handle(Future.succeededFuture(PostUserImportResponse.respond200WithApplicationJson(emptyResponse)));
+          .handle(Future.succeededFuture(PostUserImportResponse.respond200WithApplicationJson(emptyResponse())));
       return;
     }
-    prepareUserImportData(userCollection, okapiHeaders)
-        .compose(importData -> startUserImport(importData, okapiHeaders))
-        .otherwise(throwable -> processErrorResponse(userCollection.getUsers(), throwable.getMessage()))
+    runImport(new UserImportData(userCollection), okapiHeaders)
         .onComplete(handler -> {
           if (handler.succeeded() && handler.result() != null && handler.result().getError() == null) {
             asyncResultHandler
@@ -122,10 +185,214 @@ public class UserImportAPI implements UserImport {
         });
   }
 
-  private Future<UserImportData> prepareUserImportData(UserdataimportCollection userCollection,
-      Map<String, String> okapiHeaders) {
+  /**
+   * Start a user import in the background.
+   */
+  @Override
+  @Validate
+  public void postUserImportJobs(UserdataimportCollection userCollection, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
 
     UserImportData importData = new UserImportData(userCollection);
+    ImportJob job = jobService.start(TenantTool.tenantId(okapiHeaders), importData, () -> {
+      if (userCollection.getTotalRecords() == 0) {
+        return Future.succeededFuture(emptyResponse());
+      }
+      return runImport(importData, okapiHeaders);
+    });
+    asyncResultHandler.handle(Future.succeededFuture(PostUserImportJobsResponse.respond202WithApplicationJson(job)));
+  }
+
+  /**
+   * Get the progress and the result of a user import running in the background.
+   */
+  @Override
+  @Validate
+  public void getUserImportJobsById(String id, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    Response response = jobService.get(TenantTool.tenantId(okapiHeaders), id)
+        .map(GetUserImportJobsByIdResponse::respond200WithApplicationJson)
+        .orElseGet(() -> GetUserImportJobsByIdResponse.respond404WithTextPlain("Import job not found: " + id));
+    asyncResultHandler.handle(Future.succeededFuture(response));
+  }
+
+  /**
+   * Streamed user import entry point, called for each chunk of the request body.
+   */
+  @Stream
+  @Override
+  public void postUserImportStream(String sourceType, Boolean deactivateMissingUsers,
+      Boolean updateOnlyPresentFields, boolean streamResults, InputStream entity, RoutingContext routingContext,
+      Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
+      Context vertxContext) {
+
+    importStream(ImportStreamParser::new,
+        importOptions(sourceType, deactivateMissingUsers, updateOnlyPresentFields),
+        streamResults, entity, routingContext, okapiHeaders,
+        response -> respondStream(response, PostUserImportStreamResponse::respond200WithApplicationJson,
+            PostUserImportStreamResponse::respond500WithApplicationJson, asyncResultHandler));
+  }
+
+  /**
+   * NDJSON user import entry point, called for each chunk of the request body.
+   */
+  @Stream
+  @Override
+  public void postUserImportNdjson(String sourceType, Boolean deactivateMissingUsers,
+      Boolean updateOnlyPresentFields, boolean streamResults, InputStream entity, RoutingContext routingContext,
+      Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
+      Context vertxContext) {
+
+    importStream(NdjsonUserStreamParser::new,
+        importOptions(sourceType, deactivateMissingUsers, updateOnlyPresentFields),
+        streamResults, entity, routingContext, okapiHeaders,
+        response -> respondStream(response, PostUserImportNdjsonResponse::respond200WithApplicationJson,
+            PostUserImportNdjsonResponse::respond500WithApplicationJson, asyncResultHandler));
+  }
+
+  private UserdataimportCollection importOptions(String sourceType, Boolean deactivateMissingUsers,
+      Boolean updateOnlyPresentFields) {
+
+    return new UserdataimportCollection()
+        .withSourceType(sourceType)
+        .withDeactivateMissingUsers(deactivateMissingUsers)
+        .withUpdateOnlyPresentFields(updateOnlyPresentFields);
+  }
+
+  /**
+   * Feed a chunk of a streamed request body to the import of the request.
+   *
+   * @param parserFactory creates the parser of the request body
+   * @param options       the import options given as query parameters
+   * @param streamResults   whether to write the outcome of each user as soon as it is known
+   *                        instead of the response
+   * @param responder     called with the response of the import after the last chunk
+   */
+  private void importStream(Function<UserStreamParser.Listener, UserStreamParser> parserFactory,
+      UserdataimportCollection options, boolean streamResults, InputStream entity, RoutingContext routingContext,
+      Map<String, String> okapiHeaders, Consumer<Future<ImportResponse>> responder) {
+
+    String streamId = okapiHeaders.get(RestVerticle.STREAM_ID);
+    StreamedUserImport streamedImport = StreamedUserImport.get(streamId, () -> {
+      Map<String, String> headers = new CaseInsensitiveMap<>(okapiHeaders);
+      headers.remove(RestVerticle.STREAM_ID);
+      headers.remove(RestVerticle.STREAM_COMPLETE);
+      headers.remove(RestVerticle.STREAM_ABORT);
+      ImportResultStream results = streamResults ? new ImportResultStream(routingContext.response()) : null;
+      StreamedUserImport newImport =
+          new StreamedUserImport(this, headers, options, routingContext.request(), parserFactory, results);
+      routingContext.response().closeHandler(v -> StreamedUserImport.connectionClosed(streamId, newImport));
+      return newImport;
+    });
+    ImportResultStream results = streamedImport.getResults();
+    Consumer<Future<ImportResponse>> respond = results == null ? responder
+        : response -> response.onComplete(handler -> results.end(handler.succeeded()
+            ? handler.result() : processErrorResponse(List.of(), handler.cause().getMessage())));
+
+    if (okapiHeaders.containsKey(RestVerticle.STREAM_ABORT)) {
+      StreamedUserImport.remove(streamId);
+      streamedImport.fail("Request aborted");
+      return;
+    }
+    try {
+      streamedImport.feed(entity.readAllBytes());
+    } catch (IOException e) {
+      StreamedUserImport.remove(streamId);
+      respond.accept(streamedImport.fail("Invalid request body: " + e.getMessage()));
+      return;
+    }
+    if (okapiHeaders.containsKey(RestVerticle.STREAM_COMPLETE)) {
+      StreamedUserImport.remove(streamId);
+      respond.accept(streamedImport.end());
+    }
+  }
+
+  private void respondStream(Future<ImportResponse> response, Function<ImportResponse, Response> ok,
+      Function<ImportResponse, Response> error, Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    response.onComplete(handler -> {
+      if (handler.succeeded() && handler.result().getError() == null) {
+        asyncResultHandler.handle(Future.succeededFuture(ok.apply(handler.result())));
+      } else {
+        ImportResponse failure = handler.succeeded() ? handler.result()
+            : processErrorResponse(List.of(), handler.cause().getMessage());
+        asyncResultHandler.handle(Future.succeededFuture(error.apply(failure)));
+      }
+    });
+  }
+
+  private Future<ImportResponse> runImport(UserImportData importData, Map<String, String> okapiHeaders) {
+    return runImport(importData, okapiHeaders, null);
+  }
+
+  /**
+   * @param results the stream the outcome of each user is written to, null if there is none
+   */
+  private Future<ImportResponse> runImport(UserImportData importData, Map<String, String> okapiHeaders,
+      ImportResultStream results) {
+
+    return prepareUserImportData(importData, okapiHeaders)
+        .compose(data -> startUserImport(data, okapiHeaders, results))
+        .otherwise(throwable -> processErrorResponse(importData.getUsers(), throwable.getMessage()));
+  }
+
+  /**
+   * Reload the address types, patron groups and service points once per import if they
+   * are cached and a user of the partition refers to one that is not known.
+   */
+  private Future<Void> refreshReferenceDataOnMiss(UserImportData userImportData, List<User> partition,
+      Map<String, String> okapiHeaders) {
+
+    if (!ReferenceDataCache.isEnabled() || !hasReferenceDataMiss(userImportData, partition)) {
+      return Future.succeededFuture();
+    }
+    return userImportData.refreshSystemData(() -> {
+      LOGGER.info("Unknown reference data in the import, reloading address types, patron groups and service points.");
+      ReferenceDataCache.invalidate(okapiHeaders);
+      UserSystemData systemData = userImportData.getSystemData();
+      Future<Map<String, String>> addressTypesFuture = addressService.getAddressTypes(okapiHeaders);
+      Future<Map<String, String>> patronGroupsFuture = pgService.getPatronGroups(okapiHeaders);
+      Future<Map<String, String>> servicePointsFuture = spService.getServicePoints(okapiHeaders);
+      return Future.all(addressTypesFuture, patronGroupsFuture, servicePointsFuture)
+          .map(x -> UserSystemData.builder()
+              .addressTypes(addressTypesFuture.result())
+              .patronGroups(patronGroupsFuture.result())
+              .servicePoints(servicePointsFuture.result())
+              .departments(systemData.getDepartments())
+              .customFields(systemData.getCustomFields())
+              .build());
+    });
+  }
+
+  private static boolean hasReferenceDataMiss(UserImportData userImportData, List<User> partition) {
+    UserSystemData systemData = userImportData.getSystemData();
+    for (User user : partition) {
+      if (user.getPatronGroup() != null && !systemData.getPatronGroups().containsKey(user.getPatronGroup())) {
+        return true;
+      }
+      if (user.getPersonal() != null && user.getPersonal().getAddresses() != null
+          && user.getPersonal().getAddresses().stream()
+              .anyMatch(address -> address.getAddressTypeId() != null
+                  && !systemData.getAddressTypes().containsKey(address.getAddressTypeId()))) {
+        return true;
+      }
+      RequestPreference preference = userImportData.getRequestPreferences().get(user.getUsername());
+      if (preference != null && preference.getDefaultServicePointId() != null
+          && !systemData.getServicePoints().containsValue(preference.getDefaultServicePointId())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ImportResponse emptyResponse() {
+    return new ImportResponse()
+        .withMessage("No users to import.")
+        .withTotalRecords(0);
+  }
+
+  Future<UserImportData> prepareUserImportData(UserImportData importData, Map<String, String> okapiHeaders) {
     UserSystemData.UserSystemDataBuilder systemDataBuilder = UserSystemData.builder();
 
     Future<Map<String, String>> addressTypesFuture = addressService.getAddressTypes(okapiHeaders)
@@ -143,26 +410,65 @@ public class UserImportAPI implements UserImport {
     Future<Set<Department>> departmentsFuture = depService.prepareDepartments(importData, okapiHeaders)
         .onSuccess(systemDataBuilder::departments);
 
+    Future<UserFingerprintStore> fingerprintsFuture = !UserFingerprintStore.isEnabled() ? Future.succeededFuture()
+        : UserFingerprintStore.get(Vertx.currentContext().owner(), okapiHeaders)
+            .onSuccess(importData::withFingerprints);
+
     return Future
-        .all(addressTypesFuture, patronGroupsFuture, servicePointsFuture, customFieldsFuture, departmentsFuture)
-        .map(o -> importData.withSystemData(systemDataBuilder.build()));
+        .all(List.of(addressTypesFuture, patronGroupsFuture, servicePointsFuture, customFieldsFuture,
+            departmentsFuture, fingerprintsFuture))
+        .map(o -> importData.withSystemData(systemDataBuilder.build()))
+        .onSuccess(o -> {
+          if (ReferenceDataCache.isEnabled()) {
+            LOGGER.info("Reference data cache: {} hits, {} misses.",
+                ReferenceDataCache.getHits(), ReferenceDataCache.getMisses());
+          }
+          if (UserIdCache.isEnabled()) {
+            LOGGER.info("User id cache: {} ids, {} hits, {} misses, {} evictions.", UserIdCache.size(),
+                UserIdCache.getHits(), UserIdCache.getMisses(), UserIdCache.getEvictions());
+          }
+        });
   }
 
   /**
    * Start user import by getting address types and patron groups from the
    * system.
    */
-  private Future<ImportResponse> startUserImport(UserImportData importData, Map<String, String> okapiHeaders) {
-    return importUsers(importData, okapiHeaders);
-  }
+  private Future<ImportResponse> startUserImport(UserImportData importData, Map<String, String> okapiHeaders,
+      ImportResultStream results) {
 
-  private Future<ImportResponse> importUsers(UserImportData importData, Map<String, String> okapiHeaders) {
+    return importUsers(importData, okapiHeaders, pipeline -> {
+      if (results != null) {
+        results.throttle(pipeline);
+      }
+      pipeline.addAll(importData.getUsers());
+      pipeline.end();
+    });
+  }
 
-    if (importData.isDeactivateMissingUsers()) {
-      return startImportWithDeactivatingUsers(importData, okapiHeaders);
-    } else {
-      return startImport(importData, okapiHeaders);
+  /**
+   * Import users.
+   *
+   * @param userFeed called with the partition pipeline once the import is ready to process users;
+   *                 it must add all users to be imported and end the pipeline, it may do so
+   *                 asynchronously
+   */
+  Future<ImportResponse> importUsers(UserImportData importData, Map<String, String> okapiHeaders,
+      Consumer<BatchPipeline<User, ImportResponse>> userFeed) {
+
+    Future<ImportResponse> response = importData.isDeactivateMissingUsers()
+        ? startImportWithDeactivatingUsers(importData, okapiHeaders, userFeed)
+        : startImport(importData, okapiHeaders, userFeed);
+    UserFingerprintStore fingerprints = importData.getFingerprints();
+    if (fingerprints == null) {
+      return response;
     }
+    return response.compose(importResponse -> fingerprints.save(Vertx.currentContext().owner())
+        .otherwise(e -> {
+          LOGGER.warn("Failed to save user fingerprints: {}", e.getMessage(), e);
+          return null;
+        })
+        .map(importResponse));
   }
 
   /**
@@ -171,41 +477,25 @@ public class UserImportAPI implements UserImport {
    * after the import.
    */
   private Future<ImportResponse> startImportWithDeactivatingUsers(UserImportData userImportData,
-      Map<String, String> okapiHeaders) {
+      Map<String, String> okapiHeaders, Consumer<BatchPipeline<User, ImportResponse>> userFeed) {
 
+    if (ImportConfig.compactUserIndex()) {
+      return startImportWithCompactUserIndex(userImportData, okapiHeaders, userFeed);
+    }
     return listAllUsersWithExternalSystemId(okapiHeaders, userImportData.getSourceType())
         .compose(existingUsers -> {
-          final Map<String, User> existingUserMap;
+          final Map<String, ExistingUser> existingUserMap;
           try {
             existingUserMap = udpService.extractExistingUsers(existingUsers);
           } catch (UserMappingFailedException e) {
             ImportResponse userMappingFailureResponse = processErrorResponse(userImportData.getUsers(), USER_SCHEMA_MISMATCH);
             return Future.succeededFuture(userMappingFailureResponse);
           }
-          List<Future<ImportResponse>> futures = processAllUsersInPartitions(userImportData, existingUserMap, okapiHeaders);
-          return Future.all(futures)
-              .compose(ar -> {
-                LOGGER.info("Processing user search result.");
-                ImportResponse compositeResponse = processFutureResponses(futures);
-                if (existingUserMap.isEmpty()) {
-                  compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
-                  return Future.succeededFuture(compositeResponse);
-                } else if (compositeResponse.getFailedRecords() > 0) {
-                  LOGGER.warn("Failed to import all users, skipping deactivation.");
-                  compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY + " " + USER_DEACTIVATION_SKIPPED);
-                  return Future.succeededFuture(compositeResponse);
-                } else {
-                  return deactivateUsers(okapiHeaders, existingUserMap)
-                      .recover(e -> {
-                        LOGGER.warn("Ignore error for deactivate user {}", e.getMessage());
-                        return Future.succeededFuture();
-                      })
-                      .compose(deactivateHandler -> {
-                        compositeResponse.setMessage("Deactivated missing users.");
-                        return Future.succeededFuture(compositeResponse);
-                      });
-                }
-              });
+          return processAllUsersInPartitions(userImportData, okapiHeaders, userFeed, existingUserMap::remove,
+                  partition -> processUserSearchResult(okapiHeaders, existingUserMap, partition, userImportData))
+              .compose(compositeResponse -> completeImportWithDeactivation(compositeResponse,
+                  existingUserMap.isEmpty(), () -> deactivateUsers(okapiHeaders, getDeactivations(existingUserMap),
+                      compositeResponse, userImportData)));
         })
         .recover(e -> {
           ImportResponse userListingFailureResponse =
@@ -215,39 +505,203 @@ public class UserImportAPI implements UserImport {
 }
 
   /**
-   * Create partitions from all users, process them and return the list of
-   * Futures of the partition processing.
+   * Start importing users if deactivation is needed, keeping only the id and the active
+   * flag of the existing users. The users of each partition are searched like without
+   * deactivation, the full record of a user is fetched only when it is deactivated.
    */
-  private List<Future<ImportResponse>> processAllUsersInPartitions(UserImportData userImportData,
-      Map<String, User> existingUserMap, Map<String, String> okapiHeaders) {
+  private Future<ImportResponse> startImportWithCompactUserIndex(UserImportData userImportData,
+      Map<String, String> okapiHeaders, Consumer<BatchPipeline<User, ImportResponse>> userFeed) {
+
+    ExistingUserIndex existingUserIndex = new ExistingUserIndex();
+    var prefix = externalSystemIdPrefix(userImportData.getSourceType());
+    return scanUsersWithExternalSystemId(okapiHeaders, userImportData.getSourceType(),
+            page -> page.forEach(existingUser -> existingUserIndex.put(existingUser.getExternalSystemId(),
+                existingUser.getId(), existingUser.getUsername(), existingUser.isActive())))
+        .compose(x -> processAllUsersInPartitions(userImportData, okapiHeaders, userFeed, existingUserIndex::remove,
+            partition -> processPartitionWithUserIndex(okapiHeaders, partition, userImportData,
+                existingUserIndex, prefix)))
+        .compose(compositeResponse -> completeImportWithDeactivation(compositeResponse,
+            existingUserIndex.isEmpty(), () -> deactivateUsers(okapiHeaders,
+                getDeactivations(okapiHeaders, existingUserIndex), compositeResponse, userImportData)))
+        .recover(e -> {
+          ImportResponse userListingFailureResponse =
+              processErrorResponse(userImportData.getUsers(), FAILED_TO_IMPORT_USERS + extractErrorMessage(e));
+          return Future.succeededFuture(userListingFailureResponse);
+        });
+  }
 
-    List<List<User>> userPartitions = Lists.partition(userImportData.getUsers(), 10);
-    List<Future<ImportResponse>> futures = new ArrayList<>();
-    for (List<User> currentPartition : userPartitions) {
-      Future<ImportResponse> userSearchAsyncResult
-          = processUserSearchResult(okapiHeaders, existingUserMap, currentPartition, userImportData);
-      futures.add(userSearchAsyncResult);
+  /**
+   * Remove the users of a partition from the index of existing users and process them. A
+   * user the import mode does not allow to create or to update fails without being
+   * searched.
+   */
+  private Future<ImportResponse> processPartitionWithUserIndex(Map<String, String> okapiHeaders,
+      List<User> partition, UserImportData userImportData, ExistingUserIndex existingUserIndex, String prefix) {
+
+    List<User> users = new ArrayList<>(partition.size());
+    List<Future<SingleUserImportResponse>> rejectedUsers = new ArrayList<>();
+    for (User user : partition) {
+      String externalSystemId = prefix + user.getExternalSystemId();
+      boolean exists = existingUserIndex.remove(externalSystemId);
+      if (exists && userImportData.getImportMode() == ImportMode.CREATE_ONLY) {
+        rejectedUsers.add(Future.succeededFuture(SingleUserImportResponse.failed(externalSystemId,
+            user.getUsername(), -1, USER_ALREADY_EXISTS_WITH_EXTERNAL_SYSTEM_ID + externalSystemId)));
+      } else if (!exists && userImportData.getImportMode() == ImportMode.UPDATE_ONLY) {
+        rejectedUsers.add(Future.succeededFuture(SingleUserImportResponse.failed(externalSystemId,
+            user.getUsername(), -1, USER_DOES_NOT_EXIST_WITH_EXTERNAL_SYSTEM_ID + externalSystemId)));
+      } else {
+        users.add(user);
+      }
+    }
+    if (rejectedUsers.isEmpty()) {
+      return processUserBatch(okapiHeaders, partition, userImportData);
+    }
+    ImportResponse rejectedResponse = processSuccessfulImportResponse(rejectedUsers, userImportData);
+    if (users.isEmpty()) {
+      return Future.succeededFuture(rejectedResponse);
+    }
+    return processUserBatch(okapiHeaders, users, userImportData)
+        .map(response -> processFutureResponses(List.of(rejectedResponse, response)).withMessage(""));
+  }
+
+  private Future<ImportResponse> completeImportWithDeactivation(ImportResponse compositeResponse,
+      boolean noUsersLeft, Supplier<Future<Void>> deactivation) {
+
+    LOGGER.info("Processing user search result.");
+    if (noUsersLeft) {
+      compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
+      return Future.succeededFuture(compositeResponse);
+    } else if (compositeResponse.getFailedRecords() > 0) {
+      LOGGER.warn("Failed to import all users, skipping deactivation.");
+      compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY + " " + USER_DEACTIVATION_SKIPPED);
+      return Future.succeededFuture(compositeResponse);
+    } else {
+      return deactivation.get()
+          .recover(e -> {
+            LOGGER.error("Deactivation of missing users failed: {}", e.getMessage(), e);
+            return Future.succeededFuture();
+          })
+          .compose(deactivateHandler -> {
+            compositeResponse.setMessage("Deactivated missing users.");
+            return Future.succeededFuture(compositeResponse);
+          });
     }
-    return futures;
   }
 
   /**
-   * Start user import. Partition and process users in batches of 10.
+   * Create partitions from all users and process them with a bounded number of
+   * partitions in flight. A new partition is started as soon as a running one
+   * completes. The size of the next partition is taken from the partition sizer that
+   * observes the round trip time of the partitions.
+   *
+   * @param userFeed adds the users to the partition pipeline and ends it
+   * @param skippedUser called with the externalSystemId of each user skipped because its
+   *                    fingerprint is unchanged
+   * @return the aggregated response of all partitions
    */
-  private Future<ImportResponse> startImport(UserImportData userImportData, Map<String, String> okapiHeaders) {
+  private Future<ImportResponse> processAllUsersInPartitions(UserImportData userImportData,
+      Map<String, String> okapiHeaders, Consumer<BatchPipeline<User, ImportResponse>> userFeed,
+      Consumer<String> skippedUser, Function<List<User>, Future<ImportResponse>> partitionProcessor) {
+
+    AdaptiveBatchSizer sizer = ImportConfig.partitionSizer();
+    BatchPipeline<User, ImportResponse> pipeline = new BatchPipeline<>(ImportConfig.maxPartitionsInFlight(),
+        ImportConfig.maxUsersInFlight(), sizer::getBatchSize, partition -> {
+          long start = System.nanoTime();
+          return processPartitionWithFingerprints(userImportData, partition, skippedUser,
+                  users -> refreshReferenceDataOnMiss(userImportData, users, okapiHeaders)
+                      .compose(x -> partitionProcessor.apply(users)))
+              .onSuccess(userImportData.getProgress()::add)
+              .onComplete(ar -> sizer.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                  partition.size(), ar.failed() || ar.result().getError() != null));
+        });
+    userFeed.accept(pipeline);
+    return pipeline.result()
+        .onComplete(x -> LOGGER.info("Processed {} partitions, peak number of partitions in flight: {}, {}",
+            pipeline.getBatchCount(), pipeline.getPeakInFlight(), sizer))
+        .map(this::processFutureResponses);
+  }
 
-    List<List<User>> userPartitions = Lists.partition(userImportData.getUsers(), 10);
+  /**
+   * Skip the users of a partition whose fingerprint is unchanged since their last
+   * successful import and process the other users. Their fingerprints are recorded if
+   * the partition has been imported without failures, otherwise they are removed.
+   */
+  private Future<ImportResponse> processPartitionWithFingerprints(UserImportData userImportData,
+      List<User> partition, Consumer<String> skippedUser,
+      Function<List<User>, Future<ImportResponse>> partitionProcessor) {
 
-    List<Future<ImportResponse>> futures = new ArrayList<>();
+    UserFingerprintStore fingerprints = userImportData.getFingerprints();
+    if (fingerprints == null) {
+      return partitionProcessor.apply(partition);
+    }
+    var prefix = externalSystemIdPrefix(userImportData.getSourceType());
+    List<User> users = new ArrayList<>(partition.size());
+    Map<String, String> userFingerprints = new HashMap<>();
+    for (User user : partition) {
+      String externalSystemId = user.getExternalSystemId() == null ? null : prefix + user.getExternalSystemId();
+      String fingerprint = mappedFingerprint(user, userImportData);
+      if (fingerprint != null && fingerprints.isUnchanged(externalSystemId, fingerprint)) {
+        skippedUser.accept(externalSystemId);
+        userImportData.reportUserResult(SingleUserImportResponse.unchanged(externalSystemId)
+            .withUsername(user.getUsername()));
+      } else {
+        users.add(user);
+        if (externalSystemId != null && fingerprint != null) {
+          userFingerprints.put(externalSystemId, fingerprint);
+        }
+      }
+    }
+    int skipped = partition.size() - users.size();
+    Future<ImportResponse> response = users.isEmpty()
+        ? Future.succeededFuture(new ImportResponse()
+            .withMessage("")
+            .withTotalRecords(0)
+            .withCreatedRecords(0)
+            .withUpdatedRecords(0)
+            .withUnchangedRecords(0)
+            .withFailedRecords(0)
+            .withFailedUsers(new ArrayList<>()))
+        : partitionProcessor.apply(users);
+    return response.map(importResponse -> {
+      if (importResponse.getFailedRecords() == 0) {
+        userFingerprints.forEach(fingerprints::put);
+      } else {
+        userFingerprints.keySet().forEach(fingerprints::remove);
+      }
+      importResponse.setTotalRecords(importResponse.getTotalRecords() + skipped);
+      importResponse.setUnchangedRecords(importResponse.getUnchangedRecords() + skipped);
+      return importResponse;
+    });
+  }
 
-    for (List<User> currentPartition : userPartitions) {
-      Future<ImportResponse> userBatchProcessResponse
-          = processUserBatch(okapiHeaders, currentPartition, userImportData);
-      futures.add(userBatchProcessResponse);
+  /**
+   * The fingerprint of the user as it is written to mod-users, so that a change of the
+   * reference data it refers to changes the fingerprint. The mapping is undone afterwards,
+   * the user is mapped again when it is processed.
+   *
+   * @return null if the user cannot be mapped
+   */
+  private String mappedFingerprint(User user, UserImportData userImportData) {
+    UserMappingPlan.Snapshot receivedUser = UserMappingPlan.snapshot(user);
+    try {
+      udpService.updateUserData(user, userImportData);
+      return UserFingerprintStore.fingerprint(user, userImportData.getRequestPreferences().get(user.getUsername()));
+    } catch (RuntimeException e) {
+      return null;
+    } finally {
+      receivedUser.restore();
     }
-    return Future.all(futures)
-        .map(res -> {
-          ImportResponse successResponse = processFutureResponses(futures);
+  }
+
+  /**
+   * Start user import. Partition and process users in batches.
+   */
+  private Future<ImportResponse> startImport(UserImportData userImportData, Map<String, String> okapiHeaders,
+      Consumer<BatchPipeline<User, ImportResponse>> userFeed) {
+
+    return processAllUsersInPartitions(userImportData, okapiHeaders, userFeed, externalSystemId -> { },
+            partition -> processUserBatch(okapiHeaders, partition, userImportData))
+        .map(successResponse -> {
           successResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
           return successResponse;
         })
@@ -265,47 +719,158 @@ public class UserImportAPI implements UserImport {
   private Future<ImportResponse> processUserBatch(Map<String, String> okapiHeaders,
       List<User> currentPartition, UserImportData userImportData) {
 
+    if (userImportData.getImportMode() == ImportMode.CREATE_ONLY) {
+      // all users are expected to be new, an existing user fails when it is created
+      return processUserSearchResult(okapiHeaders, new HashMap<>(), currentPartition, userImportData)
+          .recover(e -> Future.succeededFuture(processPartitionErrorResponse(currentPartition, userImportData,
+              FAILED_TO_IMPORT_USERS + extractErrorMessage(e))));
+    }
+    // merging and comparing need the existing user of the search
+    if (!userImportData.isUpdateOnlyPresentFields() && !ImportConfig.skipUnchangedUsers()) {
+      var prefix = externalSystemIdPrefix(userImportData.getSourceType());
+      if (ImportConfig.userIdStrategy() == UserIds.Strategy.NAME_BASED) {
+        String tenant = TenantTool.tenantId(okapiHeaders);
+        return processUsersWithKnownIds(okapiHeaders, currentPartition, userImportData, user -> user.getId() != null
+            ? user.getId() : UserIds.nameBased(tenant, prefix + user.getExternalSystemId()).toString());
+      }
+      if (UserIdCache.isEnabled()) {
+        return processUsersWithKnownIds(okapiHeaders, currentPartition, userImportData,
+            user -> UserIdCache.get(okapiHeaders, prefix + user.getExternalSystemId()));
+      }
+    }
+    return searchAndProcessUsers(okapiHeaders, currentPartition, userImportData);
+  }
+
+  /**
+   * Search the users of a batch and create non-existing, update existing users.
+   */
+  private Future<ImportResponse> searchAndProcessUsers(Map<String, String> okapiHeaders,
+      List<User> currentPartition, UserImportData userImportData) {
+
     return listUsers(okapiHeaders, currentPartition, userImportData.getSourceType())
         .compose(res -> {
           try {
-            Map<String, User> existingUsers = udpService.extractExistingUsers(res);
+            Map<String, ExistingUser> existingUsers = udpService.extractExistingUsers(res);
 
             return processUserSearchResult(okapiHeaders, existingUsers, currentPartition, userImportData)
                 .recover(e -> {
                   LOGGER.error(FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
-                  UserdataimportCollection userCollection = new UserdataimportCollection();
-                  userCollection.setTotalRecords(currentPartition.size());
-                  userCollection.setUsers(currentPartition);
-                  ImportResponse userSearchFailureResponse = processErrorResponse(userImportData.getUsers(),
+                  ImportResponse userSearchFailureResponse = processPartitionErrorResponse(currentPartition, userImportData,
                       FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
                   return Future.succeededFuture(userSearchFailureResponse);
                 });
           } catch (UserMappingFailedException exc) {
-            UserdataimportCollection userCollection = new UserdataimportCollection();
-            userCollection.setTotalRecords(currentPartition.size());
-            userCollection.setUsers(currentPartition);
             ImportResponse userMappingFailureResponse =
-                processErrorResponse(userImportData.getUsers(), FAILED_TO_PROCESS_USER_SEARCH_RESULT + USER_SCHEMA_MISMATCH);
+                processPartitionErrorResponse(currentPartition, userImportData, FAILED_TO_PROCESS_USER_SEARCH_RESULT + USER_SCHEMA_MISMATCH);
             return Future.succeededFuture(userMappingFailureResponse);
           }})
         .recover(e -> {
           LOGGER.error(FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
-          UserdataimportCollection userCollection = new UserdataimportCollection();
-          userCollection.setTotalRecords(currentPartition.size());
-          userCollection.setUsers(currentPartition);
-          ImportResponse userSearchFailureResponse = processErrorResponse(userImportData.getUsers(),
+          ImportResponse userSearchFailureResponse = processPartitionErrorResponse(currentPartition, userImportData,
               FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
           return Future.succeededFuture(userSearchFailureResponse);
         });
   }
 
+  /**
+   * Update the users of a batch whose id is known without searching them, and search the
+   * other users. A user whose update fails with 404 or 409 loses its cached id and is
+   * searched after the updates: it is updated if it exists with another id, for example a
+   * user created before the name-based ids were used, and created otherwise.
+   *
+   * @param knownId the cached or name-based id of a user before it is mapped, null if unknown
+   */
+  private Future<ImportResponse> processUsersWithKnownIds(Map<String, String> okapiHeaders,
+      List<User> currentPartition, UserImportData userImportData, Function<User, String> knownId) {
+
+    List<User> uncachedUsers = new ArrayList<>();
+    List<User> cachedUsers = new ArrayList<>();
+    List<Future<SingleUserImportResponse>> updates = new ArrayList<>();
+    for (User user : currentPartition) {
+      String id = knownId.apply(user);
+      if (id == null) {
+        uncachedUsers.add(user);
+      } else {
+        cachedUsers.add(user);
+        updates.add(updateUserWithKnownId(okapiHeaders, user, id, userImportData));
+      }
+    }
+    if (cachedUsers.isEmpty()) {
+      return searchAndProcessUsers(okapiHeaders, currentPartition, userImportData);
+    }
+    Future<ImportResponse> searched = uncachedUsers.isEmpty() ? Future.succeededFuture()
+        : searchAndProcessUsers(okapiHeaders, uncachedUsers, userImportData);
+    Future<ImportResponse> updated = Future.all(updates)
+        .compose(x -> {
+          List<User> staleUsers = new ArrayList<>();
+          for (int i = 0; i < updates.size(); i++) {
+            if (updates.get(i).result() == null) {
+              staleUsers.add(cachedUsers.get(i));
+            }
+          }
+          ImportResponse response = processSuccessfulImportResponse(updates.stream()
+              .filter(update -> update.result() != null)
+              .toList(), userImportData);
+          if (staleUsers.isEmpty()) {
+            return Future.succeededFuture(response);
+          }
+          return searchAndProcessUsers(okapiHeaders, staleUsers, userImportData)
+              .map(staleResponse -> processFutureResponses(List.of(response, staleResponse)));
+        });
+    return Future.all(searched, updated)
+        .map(x -> {
+          ImportResponse response = searched.result() == null ? updated.result()
+              : processFutureResponses(List.of(searched.result(), updated.result()));
+          return response.withMessage("");
+        });
+  }
+
+  /**
+   * Update a user with its known id. If there is no user with the id the mapping of the user
+   * is undone, so that it can be searched and mapped again.
+   *
+   * @return the response of the user, null if the user has to be searched
+   */
+  private Future<SingleUserImportResponse> updateUserWithKnownId(Map<String, String> okapiHeaders, User user,
+      String id, UserImportData userImportData) {
+
+    UserMappingPlan.Snapshot receivedUser = UserMappingPlan.snapshot(user);
+    String receivedId = user.getId();
+    try {
+      udpService.updateUserData(user, userImportData);
+    } catch (RuntimeException e) {
+      return Future.succeededFuture(getFailedUserResponse(user, e));
+    }
+    user.setId(id);
+    final String userUpdateQuery = UriBuilder.fromPath(USERS_ENDPOINT + "/" + id).build().toString();
+
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, userUpdateQuery);
+    return JsonBufferWriter.sendJson(request, user)
+        .compose(res -> {
+          if (res.statusCode() == 404 || res.statusCode() == 409) {
+            UserIdCache.remove(okapiHeaders, user.getExternalSystemId());
+            receivedUser.restore();
+            user.setId(receivedId);
+            return Future.<SingleUserImportResponse>succeededFuture();
+          }
+          return Future.succeededFuture(res)
+              .expecting(SC_NO_CONTENT)
+              .map(x -> SingleUserImportResponse.updated(user.getExternalSystemId()))
+              .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_UPDATE_USER_WITH_EXTERNAL_SYSTEM_ID
+                  + user.getExternalSystemId()))
+              .compose(updated -> processUserPreference(new UserWrite(user, true, false), updated,
+                  userImportData, okapiHeaders, null));
+        })
+        .otherwise(e -> getFailedUserResponse(user, e));
+  }
+
   /**
    * List a batch of users.
    */
-  private Future<List> listUsers(Map<String, String> okapiHeaders,
+  private Future<List<ExistingUser>> listUsers(Map<String, String> okapiHeaders,
       List<User> users, String sourceType) {
 
-    var prefix = Strings.isNullOrEmpty(sourceType) ? "" : sourceType + "_";
+    var prefix = externalSystemIdPrefix(sourceType);
     StringBuilder userQueryBuilder = new StringBuilder("externalSystemId==(");
     for (int i = 0; i < users.size(); i++) {
       if (i > 0) {
@@ -318,7 +883,7 @@ public class UserImportAPI implements UserImport {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userSearchQuery)
         .send()
         .expecting(SC_OK)
-        .map(res -> getUsersFromResult(res.bodyAsJsonObject()))
+        .map(res -> UserSearchResponseReader.read(res.body()).users())
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_PROCESS_USER_SEARCH_RESPONSE));
   }
 
@@ -327,51 +892,230 @@ public class UserImportAPI implements UserImport {
    * it, otherwise creates a new one.
    */
   private Future<ImportResponse> processUserSearchResult(Map<String, String> okapiHeaders,
-      Map<String, User> existingUsers, List<User> usersToImport, UserImportData userImportData) {
+      Map<String, ExistingUser> existingUsers, List<User> usersToImport, UserImportData userImportData) {
 
-    List<Future<SingleUserImportResponse>> futures = usersToImport.stream()
-      .map(user -> processUser(user, userImportData, existingUsers, okapiHeaders))
-      .collect(Collectors.toList());
+    return prefetchRequestPreferences(okapiHeaders, existingUsers, usersToImport, userImportData.getSourceType())
+        .compose(preferences -> {
+          List<Future<SingleUserImportResponse>> futures;
+          if (usersToImport.size() > 1 && batchService.isAvailable(okapiHeaders)) {
+            futures = processUsersInBatch(okapiHeaders, existingUsers, usersToImport, userImportData, preferences);
+          } else {
+            futures = usersToImport.stream()
+              .map(user -> processUser(user, userImportData, existingUsers, okapiHeaders, preferences))
+              .collect(Collectors.toList());
+          }
 
-    return Future.all(futures)
-        .onSuccess(x -> LOGGER.info("User creation and update has finished for the current batch."))
-        .map(x -> processSuccessfulImportResponse(futures))
+          return Future.all(futures)
+              .onSuccess(x -> LOGGER.info("User creation and update has finished for the current batch."))
+              .map(x -> processSuccessfulImportResponse(futures, userImportData));
+        })
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_IMPORT_USERS));
   }
 
+  /**
+   * Fetch the request preferences of the existing users of a partition with one request.
+   *
+   * @param usersToImport the users before they are mapped, their externalSystemId lacks the
+   *                      sourceType prefix of the existingUsers keys
+   * @return the request preferences by user id, null if they have to be fetched user by user
+   */
+  private Future<Map<String, RequestPreference>> prefetchRequestPreferences(Map<String, String> okapiHeaders,
+      Map<String, ExistingUser> existingUsers, List<User> usersToImport, String sourceType) {
+
+    var prefix = externalSystemIdPrefix(sourceType);
+    Set<String> userIds = new LinkedHashSet<>();
+    for (User user : usersToImport) {
+      ExistingUser existingUser = existingUsers.get(prefix + user.getExternalSystemId());
+      if (existingUser != null && existingUser.getId() != null) {
+        userIds.add(existingUser.getId());
+      }
+    }
+    if (userIds.size() < 2) {
+      return Future.succeededFuture();
+    }
+    return prefService.getByUserIds(okapiHeaders, userIds)
+        .otherwise(e -> {
+          LOGGER.warn("Prefetch of request preferences failed, fetching them user by user: {}", e.getMessage());
+          return null;
+        });
+  }
+
   private Future<SingleUserImportResponse> processUser(User user, UserImportData userImportData,
-      Map<String, User> existingUsers, Map<String, String> okapiHeaders) {
+      Map<String, ExistingUser> existingUsers, Map<String, String> okapiHeaders,
+      Map<String, RequestPreference> preferences) {
 
+    UserWrite write;
     try {
-      udpService.updateUserData(user, userImportData);
+      write = prepareUserWrite(okapiHeaders, user, userImportData, existingUsers);
     } catch (RuntimeException e) {
       SingleUserImportResponse failed = getFailedUserResponse(user, e);
       return Future.succeededFuture(failed);
     }
 
-    if (existingUsers.containsKey(user.getExternalSystemId())) {
+    Future<SingleUserImportResponse> written;
+    if (write.unchanged()) {
+      written = Future.succeededFuture(SingleUserImportResponse.unchanged(write.user().getExternalSystemId()));
+    } else if (write.update()) {
+      written = updateUser(okapiHeaders, write.user());
+    } else {
+      written = createNewUser(okapiHeaders, write.user());
+    }
+    return written.compose(singleUserImportResponse ->
+        processUserPreference(write, singleUserImportResponse, userImportData, okapiHeaders, preferences));
+  }
+
+  /**
+   * Create or update the users of a partition with one request to the batch users
+   * endpoint. The permission users of the new users are created before, the permission
+   * user of a user whose creation fails is deleted.
+   */
+  private List<Future<SingleUserImportResponse>> processUsersInBatch(Map<String, String> okapiHeaders,
+      Map<String, ExistingUser> existingUsers, List<User> usersToImport, UserImportData userImportData,
+      Map<String, RequestPreference> preferences) {
+
+    List<Future<SingleUserImportResponse>> futures = new ArrayList<>();
+    List<UserWrite> writes = new ArrayList<>();
+    for (User user : usersToImport) {
+      try {
+        writes.add(prepareUserWrite(okapiHeaders, user, userImportData, existingUsers));
+      } catch (RuntimeException e) {
+        futures.add(Future.succeededFuture(getFailedUserResponse(user, e)));
+      }
+    }
+
+    // create permission before user object to avoid user without permission
+    List<Future<JsonObject>> permissionUsers = writes.stream()
+        .map(write -> write.update() ? Future.<JsonObject>succeededFuture()
+            : addEmptyPermissionSetForUser(okapiHeaders, write.user()))
+        .toList();
+    Future<Map<UserWrite, SingleUserImportResponse>> written = Future.join(permissionUsers)
+        .transform(x -> {
+          List<UserWrite> readyWrites = new ArrayList<>();
+          for (int i = 0; i < writes.size(); i++) {
+            if (permissionUsers.get(i).succeeded() && !writes.get(i).unchanged()) {
+              readyWrites.add(writes.get(i));
+            }
+          }
+          return writeUsers(okapiHeaders, readyWrites);
+        });
+
+    for (int i = 0; i < writes.size(); i++) {
+      UserWrite write = writes.get(i);
+      Future<JsonObject> permissionUser = permissionUsers.get(i);
+      futures.add(written.compose(results -> {
+        if (permissionUser.failed()) {
+          return Future.succeededFuture(getFailedNewUserResponse(write.user()));
+        }
+        SingleUserImportResponse response = write.unchanged()
+            ? SingleUserImportResponse.unchanged(write.user().getExternalSystemId())
+            : results.get(write);
+        if (response.getStatus() == UserRecordImportStatus.FAILED) {
+          return write.update() ? Future.succeededFuture(response)
+              : deletePermissionUserOfFailedUser(okapiHeaders, permissionUser.result(), response);
+        }
+        return processUserPreference(write, response, userImportData, okapiHeaders, preferences);
+      }));
+    }
+    return futures;
+  }
+
+  /**
+   * Write users with the batch users endpoint, or one by one if it is not available.
+   */
+  private Future<Map<UserWrite, SingleUserImportResponse>> writeUsers(Map<String, String> okapiHeaders,
+      List<UserWrite> writes) {
+
+    if (writes.isEmpty()) {
+      return Future.succeededFuture(Collections.emptyMap());
+    }
+    return batchService.write(okapiHeaders, writes.stream().map(UserWrite::user).toList(),
+            writes.stream().map(UserWrite::update).toList())
+        .recover(e -> {
+          if (e instanceof UserBatchService.BatchEndpointUnavailableException) {
+            return writeUsersOneByOne(okapiHeaders, writes);
+          }
+          LOGGER.error("Failed to write users in batch: {}", e.getMessage(), e);
+          return Future.succeededFuture(writes.stream()
+              .map(write -> getFailedUserResponse(write.user(), e))
+              .toList());
+        })
+        .map(responses -> {
+          Map<UserWrite, SingleUserImportResponse> results = new IdentityHashMap<>();
+          for (int i = 0; i < writes.size(); i++) {
+            results.put(writes.get(i), responses.get(i));
+            if (responses.get(i).getStatus() == UserRecordImportStatus.CREATED) {
+              UserIdCache.put(okapiHeaders, writes.get(i).user().getExternalSystemId(), writes.get(i).user().getId());
+            }
+          }
+          return results;
+        });
+  }
+
+  private Future<List<SingleUserImportResponse>> writeUsersOneByOne(Map<String, String> okapiHeaders,
+      List<UserWrite> writes) {
+
+    List<Future<SingleUserImportResponse>> futures = writes.stream()
+        .map(write -> (write.update() ? updateUser(okapiHeaders, write.user()) : postUser(okapiHeaders, write.user()))
+            .otherwise(e -> getFailedUserResponse(write.user(), e)))
+        .toList();
+    return Future.all(futures).map(x -> futures.stream().map(Future::result).toList());
+  }
+
+  /**
+   * Map the incoming user and match it with the existing user.
+   *
+   * @throws RuntimeException if the user cannot be mapped or the import mode does not allow
+   *                          to create or to update it
+   */
+  private UserWrite prepareUserWrite(Map<String, String> okapiHeaders, User user, UserImportData userImportData,
+      Map<String, ExistingUser> existingUsers) {
+
+    udpService.updateUserData(user, userImportData);
+
+    ExistingUser existingUser = existingUsers.remove(user.getExternalSystemId());
+    if (existingUser != null) {
+      UserIdCache.put(okapiHeaders, existingUser.getExternalSystemId(), existingUser.getId());
+    }
+    if (existingUser == null && userImportData.getImportMode() == ImportMode.UPDATE_ONLY) {
+      throw new IllegalStateException(USER_DOES_NOT_EXIST_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId());
+    }
+    if (existingUser != null && userImportData.getImportMode() == ImportMode.CREATE_ONLY) {
+      throw new IllegalStateException(USER_ALREADY_EXISTS_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId());
+    }
+    if (existingUser == null) {
+      if (user.getId() == null) {
+        user.setId(UserIds.newUserId(TenantTool.tenantId(okapiHeaders), user.getExternalSystemId()));
+      }
+      return new UserWrite(user, false, false);
+    }
+    boolean skipUnchanged = ImportConfig.skipUnchangedUsers();
+    try {
       if (userImportData.isUpdateOnlyPresentFields()) {
-        user = udpService.updateExistingUserWithIncomingFields(user, existingUsers.get(user.getExternalSystemId()));
-      } else {
-        user.setId(existingUsers.get(user.getExternalSystemId()).getId());
+        // the merge changes the existing user, normalize it before
+        JsonNode before = skipUnchanged ? UserNormalizer.normalize(existingUser.getUser()) : null;
+        user = udpService.updateExistingUserWithIncomingFields(user, existingUser.getUser());
+        return new UserWrite(user, true, before != null && before.equals(UserNormalizer.normalize(user)));
       }
-      existingUsers.remove(user.getExternalSystemId());
-      User finalUser = user;
-      return updateUser(okapiHeaders, user)
-        .compose(singleUserImportResponse -> updateUserPreference(finalUser, userImportData, okapiHeaders)
-          .map(o -> singleUserImportResponse)
-          .otherwise(e -> getFailedUserResponse(finalUser, e))
-        );
-    } else {
-      User finalUser = user;
-      return createNewUser(okapiHeaders, user)
-        .compose(singleUserImportResponse -> createUserPreference(finalUser, userImportData, okapiHeaders)
-          .map(o -> singleUserImportResponse)
-          .otherwise(e -> getFailedUserResponse(finalUser, e))
-        );
+      user.setId(existingUser.getId());
+      return new UserWrite(user, true, skipUnchanged && UserNormalizer.isUnchanged(user, existingUser.getUser()));
+    } catch (UserMappingFailedException e) {
+      LOGGER.error(e.getMessage());
+      throw new IllegalStateException(FAILED_TO_PROCESS_USER_SEARCH_RESULT + USER_SCHEMA_MISMATCH, e);
     }
   }
 
+  private Future<SingleUserImportResponse> processUserPreference(UserWrite write,
+      SingleUserImportResponse singleUserImportResponse, UserImportData userImportData,
+      Map<String, String> okapiHeaders, Map<String, RequestPreference> preferences) {
+
+    Future<RequestPreference> preference = write.update()
+        ? updateUserPreference(write.user(), userImportData, okapiHeaders, preferences)
+        : createUserPreference(write.user(), userImportData, okapiHeaders);
+    return preference
+        .map(o -> singleUserImportResponse)
+        .otherwise(e -> getFailedUserResponse(write.user(), e));
+  }
+
   private SingleUserImportResponse getFailedUserResponse(User finalUser, Throwable e) {
     return SingleUserImportResponse
       .failed(finalUser.getExternalSystemId(), finalUser.getUsername(), -1, e.getMessage());
@@ -380,28 +1124,38 @@ public class UserImportAPI implements UserImport {
   /**
    * Aggregate SingleUserImportResponses to an ImportResponse.
    */
-  private ImportResponse processSuccessfulImportResponse(List<Future<SingleUserImportResponse>> futures) {
+  private ImportResponse processSuccessfulImportResponse(List<Future<SingleUserImportResponse>> futures,
+      UserImportData userImportData) {
+
     List<FailedUser> failedUsers = new ArrayList<>();
     int created = 0;
     int updated = 0;
+    int unchanged = 0;
     int failed = 0;
     for (Future<SingleUserImportResponse> currentFuture : futures) {
       SingleUserImportResponse resp = currentFuture.result();
+      userImportData.reportUserResult(resp);
       if (resp.getStatus() == UserRecordImportStatus.CREATED) {
         created++;
       } else if (resp.getStatus() == UserRecordImportStatus.UPDATED) {
         updated++;
+      } else if (resp.getStatus() == UserRecordImportStatus.UNCHANGED) {
+        unchanged++;
       } else {
         failed++;
+        if (userImportData.isReportingUserResults()) {
+          continue;
+        }
         failedUsers.add(new FailedUser().withExternalSystemId(resp.getExternalSystemId()).withUsername(resp.getUsername())
           .withErrorMessage(resp.getErrorMessage()));
       }
     }
     return new ImportResponse()
       .withMessage("")
-      .withTotalRecords(created + updated + failed)
+      .withTotalRecords(created + updated + unchanged + failed)
       .withCreatedRecords(created)
       .withUpdatedRecords(updated)
+      .withUnchangedRecords(unchanged)
       .withFailedRecords(failed)
       .withFailedUsers(failedUsers);
   }
@@ -414,8 +1168,8 @@ public class UserImportAPI implements UserImport {
 
     final String userUpdateQuery = UriBuilder.fromPath(USERS_ENDPOINT + "/" + user.getId()).build().toString();
 
-    return HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, userUpdateQuery)
-        .sendJson(asJsonObject(user))
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, userUpdateQuery);
+    return JsonBufferWriter.sendJson(request, user)
         .expecting(SC_NO_CONTENT)
         .map(x -> SingleUserImportResponse.updated(user.getExternalSystemId()))
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_UPDATE_USER_WITH_EXTERNAL_SYSTEM_ID
@@ -427,32 +1181,123 @@ public class UserImportAPI implements UserImport {
    */
   private Future<SingleUserImportResponse> createNewUser(Map<String, String> okapiHeaders, User user) {
 
-    if (user.getId() == null) {
-      user.setId(UUID.randomUUID().toString());
+    if (ImportConfig.concurrentPermissionUsers()) {
+      return createNewUserConcurrently(okapiHeaders, user);
     }
 
-    final String userCreationQuery = UriBuilder.fromPath(USERS_ENDPOINT).build().toString();
-
-    // create permission before user object to avoid user without permission
-    // a dangling permission user object does not hurt.
+    // create permission before user object to avoid user without permission,
+    // the permission user is deleted if the user cannot be created
     return addEmptyPermissionSetForUser(okapiHeaders, user)
-        .compose(x ->
-          HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, userCreationQuery)
-            .sendJsonObject(asJsonObject(user))
-            .expecting(SC_CREATED)
-            .map(res -> SingleUserImportResponse.created(user.getExternalSystemId())))
+        .compose(permissionUser -> postUser(okapiHeaders, user)
+            .recover(e -> {
+              LOGGER.error(() -> "create new user: " + e.getMessage(), e);
+              return deletePermissionUserOfFailedUser(okapiHeaders, permissionUser,
+                  getFailedNewUserResponse(user, e));
+            }))
         .onFailure(e -> LOGGER.error(() -> "create new user: " + e.getMessage(), e))
-        .otherwise(e -> SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(),
-            500, FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId()));
+        .otherwise(e -> getFailedNewUserResponse(user, e));
+  }
+
+  /**
+   * Delete the permission user of a user whose creation failed. If the deletion fails too,
+   * its error is added to the error message of the user.
+   */
+  private Future<SingleUserImportResponse> deletePermissionUserOfFailedUser(Map<String, String> okapiHeaders,
+      JsonObject permissionUser, SingleUserImportResponse failed) {
+
+    return deletePermissionUser(okapiHeaders, permissionUser.getString("id"))
+        .map(failed)
+        .otherwise(e -> {
+          LOGGER.error("Cleanup after failed creation of user with externalSystemId {}: {}",
+              failed.getExternalSystemId(), e.getMessage(), e);
+          return failed.withErrorMessage(failed.getErrorMessage() + ". " + e.getMessage());
+        });
   }
 
-  private JsonObject asJsonObject(User user) {
-    var jsonObject = JsonObject.mapFrom(user);
-    if (user.getPreferredEmailCommunication().isEmpty()) {
-      // delete optional array to be compatible with Poppy and Quesnelia versions of mod-users
-      jsonObject.remove("preferredEmailCommunication");
+  /**
+   * Create the permission user and the user at the same time. If one of them fails the
+   * other one is deleted, a user without permission user is not left behind. If the
+   * deletion fails too, its error is added to the error message of the user.
+   */
+  private Future<SingleUserImportResponse> createNewUserConcurrently(Map<String, String> okapiHeaders, User user) {
+    Future<JsonObject> permissionUser = addEmptyPermissionSetForUser(okapiHeaders, user);
+    Future<SingleUserImportResponse> createdUser = postUser(okapiHeaders, user);
+
+    return Future.join(permissionUser, createdUser)
+        .transform(x -> {
+          if (x.succeeded()) {
+            return createdUser;
+          }
+          Throwable cause = permissionUser.failed() ? permissionUser.cause() : createdUser.cause();
+          LOGGER.error(() -> "create new user: " + cause.getMessage(), cause);
+          Future<Void> cleanup = Future.succeededFuture();
+          if (permissionUser.succeeded()) {
+            cleanup = deletePermissionUser(okapiHeaders, permissionUser.result().getString("id"));
+          } else if (createdUser.succeeded()) {
+            cleanup = deleteUser(okapiHeaders, user.getId());
+          }
+          return cleanup
+              .map(y -> getFailedNewUserResponse(user))
+              .otherwise(e -> {
+                LOGGER.error("Cleanup after failed creation of user with externalSystemId {}: {}",
+                    user.getExternalSystemId(), e.getMessage(), e);
+                SingleUserImportResponse response = getFailedNewUserResponse(user);
+                return response.withErrorMessage(response.getErrorMessage() + ". " + e.getMessage());
+              });
+        });
+  }
+
+  private Future<Void> deleteUser(Map<String, String> okapiHeaders, String id) {
+    final String userDeleteQuery = UriBuilder.fromPath(USERS_ENDPOINT + "/" + id).build().toString();
+
+    return HttpClientUtil.getRequestOkapi(HttpMethod.DELETE, okapiHeaders, userDeleteQuery)
+        .send()
+        .expecting(SC_NO_CONTENT)
+        .<Void>mapEmpty()
+        .recover(e -> Future.failedFuture(FAILED_TO_DELETE_USER_WITH_ID + id + ": " + e.getMessage()));
+  }
+
+  private Future<Void> deletePermissionUser(Map<String, String> okapiHeaders, String id) {
+    final String permissionDeleteQuery = UriBuilder.fromPath(PERMS_USERS_ENDPOINT + "/" + id).build().toString();
+
+    return HttpClientUtil.getRequestOkapi(HttpMethod.DELETE, okapiHeaders, permissionDeleteQuery)
+        .send()
+        .expecting(SC_NO_CONTENT)
+        .<Void>mapEmpty()
+        .recover(e -> Future.failedFuture(FAILED_TO_DELETE_PERMISSION_USER_WITH_ID + id + ": " + e.getMessage()));
+  }
+
+  private Future<SingleUserImportResponse> postUser(Map<String, String> okapiHeaders, User user) {
+    final String userCreationQuery = UriBuilder.fromPath(USERS_ENDPOINT).build().toString();
+
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, userCreationQuery);
+    return JsonBufferWriter.sendJson(request, user)
+        .compose(res -> {
+          if (res.statusCode() == 422) {
+            return Future.failedFuture(new UserAlreadyExistsException(
+                FAILED_TO_CREATE_EXISTING_USER_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId() + ": "
+                    + res.bodyAsString()));
+          }
+          return Future.succeededFuture(res);
+        })
+        .expecting(SC_CREATED)
+        .onSuccess(res -> UserIdCache.put(okapiHeaders, user.getExternalSystemId(), user.getId()))
+        .map(res -> SingleUserImportResponse.created(user.getExternalSystemId()));
+  }
+
+  private SingleUserImportResponse getFailedNewUserResponse(User user) {
+    return SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(),
+        500, FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId());
+  }
+
+  /**
+   * @param cause the failure of the creation, a conflict with an existing user is reported as such
+   */
+  private SingleUserImportResponse getFailedNewUserResponse(User user, Throwable cause) {
+    if (cause instanceof UserAlreadyExistsException) {
+      return SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(), 422, cause.getMessage());
     }
-    return jsonObject;
+    return getFailedNewUserResponse(user);
   }
 
   private Future<RequestPreference> createUserPreference(User user, UserImportData userImportData,
@@ -470,10 +1315,16 @@ public class UserImportAPI implements UserImport {
         });
   }
 
+  /**
+   * @param preferences the prefetched request preferences by user id, null if not prefetched
+   */
   private Future<RequestPreference> updateUserPreference(User user, UserImportData userImportData,
-      Map<String, String> okapiHeaders) {
+      Map<String, String> okapiHeaders, Map<String, RequestPreference> preferences) {
 
-    return prefService.get(okapiHeaders, user.getId())
+    Future<RequestPreference> existingPreference = preferences == null
+        ? prefService.get(okapiHeaders, user.getId())
+        : Future.succeededFuture(preferences.get(user.getId()));
+    return existingPreference
         .compose(result -> {
           if (Objects.nonNull(result)) {
             RequestPreference requestPreference = userImportData.getRequestPreferences().get(user.getUsername());
@@ -517,7 +1368,27 @@ public class UserImportAPI implements UserImport {
   /**
    * List all users (in a sourceType if given).
    */
-  private Future<List<Map>> listAllUsersWithExternalSystemId(Map<String, String> okapiHeaders, String sourceType) {
+  private Future<List<ExistingUser>> listAllUsersWithExternalSystemId(Map<String, String> okapiHeaders,
+      String sourceType) {
+
+    List<ExistingUser> existingUserList = new ArrayList<>();
+    return scanUsersWithExternalSystemId(okapiHeaders, sourceType, existingUserList::addAll)
+        .map(x -> existingUserList);
+  }
+
+  /**
+   * Read all users (in a sourceType if given) page by page.
+   *
+   * <p>With {@link ImportConfig#keysetUserScan()} each page starts after the last
+   * externalSystemId of the previous page and the scan ends with the first page that is
+   * not full. Otherwise the pages are read by offset, the number of pages is taken from
+   * the totalRecords of the first page.
+   *
+   * @param pageHandler called with the users of each page
+   */
+  private Future<Void> scanUsersWithExternalSystemId(Map<String, String> okapiHeaders, String sourceType,
+      Consumer<List<ExistingUser>> pageHandler) {
+
     StringBuilder queryBuilder = new StringBuilder("externalSystemId");
     if (!Strings.isNullOrEmpty(sourceType)) {
       queryBuilder.append("=^").append(sourceType).append("_*");
@@ -526,37 +1397,88 @@ public class UserImportAPI implements UserImport {
     }
 
     final String query = queryBuilder.toString();
-    int limit = 10;
+    int limit = ImportConfig.userScanPageSize();
+    if (ImportConfig.keysetUserScan()) {
+      return scanUsersAfter(okapiHeaders, query, limit, null, pageHandler)
+          .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_PROCESS_USER_SEARCH_RESULT));
+    }
     final String userSearchQuery = generateUserSearchQuery(query, limit, 0);
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userSearchQuery)
         .send()
         .expecting(SC_OK)
-        .compose(res -> listAllUsers(res.bodyAsJsonObject(), okapiHeaders, query, limit))
+        .compose(res -> listAllUsers(UserSearchResponseReader.read(res.body()), okapiHeaders, query, limit,
+            pageHandler))
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_PROCESS_USER_SEARCH_RESULT));
   }
 
+  /**
+   * Read the users whose externalSystemId follows lastExternalSystemId, one page after the other.
+   *
+   * @param lastExternalSystemId the last externalSystemId of the previous page, null for the first page
+   */
+  private Future<Void> scanUsersAfter(Map<String, String> okapiHeaders, String query, int limit,
+      String lastExternalSystemId, Consumer<List<ExistingUser>> pageHandler) {
+
+    String pageQuery = query;
+    if (lastExternalSystemId != null) {
+      pageQuery = "(" + query + ") and externalSystemId>\"" + cqlEscape(lastExternalSystemId) + "\"";
+    }
+    // the next page depends on the order, it must not rely on the orderBy parameter alone
+    pageQuery += " sortBy externalSystemId/sort.ascending";
+    final String userSearchQuery = generateUserSearchQuery(pageQuery, limit, 0);
+    return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userSearchQuery)
+        .send()
+        .expecting(SC_OK)
+        .compose(res -> {
+          List<ExistingUser> users = UserSearchResponseReader.read(res.body()).users();
+          pageHandler.accept(users);
+          if (users.size() < limit) {
+            return Future.succeededFuture();
+          }
+          String last = users.get(users.size() - 1).getExternalSystemId();
+          if (last == null) {
+            return Future.succeededFuture();
+          }
+          return scanUsersAfter(okapiHeaders, query, limit, last, pageHandler);
+        });
+  }
+
+  /**
+   * The prefix the sourceType adds to the externalSystemId of the users.
+   */
+  private static String externalSystemIdPrefix(String sourceType) {
+    return Strings.isNullOrEmpty(sourceType) ? "" : sourceType + "_";
+  }
+
+  /**
+   * Mask the characters of a CQL string that have a special meaning.
+   */
+  private static String cqlEscape(String value) {
+    return value.replaceAll("([\\\\\"*?^])", "\\\\$1");
+  }
+
   /**
    * List all users.
    */
-  private Future<List<Map>> listAllUsers(JsonObject resultObject,
-      Map<String, String> okapiHeaders, String query, int limit) {
+  private Future<Void> listAllUsers(UserSearchResult result,
+      Map<String, String> okapiHeaders, String query, int limit, Consumer<List<ExistingUser>> pageHandler) {
 
-    List<Map> users = getUsersFromResult(resultObject);
-    List<Map> existingUserList = new ArrayList<>(users);
-    int totalRecords = resultObject.getInteger("totalRecords");
+    pageHandler.accept(result.users());
+    int totalRecords = result.totalRecords();
     if (totalRecords <= limit) {
-      return Future.succeededFuture(existingUserList);
+      return Future.succeededFuture();
     }
     int numberOfPages = totalRecords / limit;
     if (totalRecords % limit != 0) {
       numberOfPages++;
     }
-    List<Future<Void>> futures = new ArrayList<>();
+    BatchPipeline<Integer, Void> pages = new BatchPipeline<>(ImportConfig.userScanPagesInFlight(), 1,
+        offsets -> processResponse(pageHandler, okapiHeaders, query, limit, offsets.get(0)));
     for (int offset = 1; offset < numberOfPages; offset++) {
-      futures.add(processResponse(existingUserList, okapiHeaders, query, limit, offset * limit));
+      pages.add(offset * limit);
     }
-    return Future.all(futures)
-        .map(x -> existingUserList)
+    return pages.end()
+        .<Void>mapEmpty()
         .recover(e -> Future.failedFuture(FAILED_TO_PROCESS_USERS + extractErrorMessage(e)));
   }
 
@@ -564,7 +1486,7 @@ public class UserImportAPI implements UserImport {
   /**
      * Process user search response.
      */
-  private Future<Void> processResponse(List<Map> existingUserList, Map<String, String> okapiHeaders,
+  private Future<Void> processResponse(Consumer<List<ExistingUser>> pageHandler, Map<String, String> okapiHeaders,
       String query, int limit, int offset) {
 
     final String userSearchQuery = generateUserSearchQuery(query, limit, offset);
@@ -573,34 +1495,102 @@ public class UserImportAPI implements UserImport {
         .expecting(SC_OK)
         .<Void>map(
             res -> {
-              List<Map> users = getUsersFromResult(res.bodyAsJsonObject());
-              existingUserList.addAll(users);
+              pageHandler.accept(UserSearchResponseReader.read(res.body()).users());
               return null;
               })
         .recover(e -> HttpClientUtil.errorManagement(e,FAILED_TO_PROCESS_USER_SEARCH_RESPONSE));
   }
 
   /**
-   * Deactivate users
+   * The active users of the map, they are deactivated by an update.
+   */
+  private List<Deactivation> getDeactivations(Map<String, ExistingUser> existingUserMap) {
+    List<Deactivation> deactivations = new ArrayList<>();
+    for (ExistingUser user : existingUserMap.values()) {
+      if (user.isActive()) {
+        deactivations.add(new Deactivation(user.getExternalSystemId(), user.getUsername(),
+            () -> decodeUser(user)));
+      }
+    }
+    return deactivations;
+  }
+
+  /**
+   * The active users of the index, the full record of each user is fetched before it is
+   * deactivated.
+   */
+  private List<Deactivation> getDeactivations(Map<String, String> okapiHeaders, ExistingUserIndex existingUserIndex) {
+    List<Deactivation> deactivations = new ArrayList<>();
+    existingUserIndex.forEachActive((externalSystemId, id, username) ->
+        deactivations.add(new Deactivation(externalSystemId, username, () -> getUser(okapiHeaders, id))));
+    return deactivations;
+  }
+
+  /**
+   * Deactivate users with at most {@link ImportConfig#deactivationConcurrency()} requests
+   * at the same time and at most {@link ImportConfig#deactivationRate()} requests per second.
+   * The number of deactivated users and the failed deactivations are added to the response.
    *
-   * @param okapiHeaders    the Okapi headers
-   * @param existingUserMap the existing users that were not updated in the
-   *                        request
-   * @return a completed future if users were deactivated a failed future if not
-   * all users could be deactivated
+   * @param okapiHeaders  the Okapi headers
+   * @param deactivations the existing active users that were not in the request
+   * @return a future that completes when all deactivations have completed
    */
-  private Future<Void> deactivateUsers(Map<String, String> okapiHeaders, Map<String, User> existingUserMap) {
+  private Future<Void> deactivateUsers(Map<String, String> okapiHeaders, List<Deactivation> deactivations,
+      ImportResponse response, UserImportData userImportData) {
+
+    ImportProgress progress = userImportData.getProgress();
+    UserFingerprintStore fingerprints = userImportData.getFingerprints();
+    LOGGER.info("Deactivating {} users.", deactivations.size());
+    List<FailedUser> failedDeactivations = new ArrayList<>();
+    ThrottledRunner<Deactivation> runner = new ThrottledRunner<>(Vertx.currentContext().owner(),
+        ImportConfig.deactivationConcurrency(), ImportConfig.deactivationRate(),
+        deactivation -> deactivation.user().get()
+            .compose(user -> {
+              user.setActive(Boolean.FALSE);
+              return updateUser(okapiHeaders, user);
+            })
+            .onSuccess(x -> {
+              if (fingerprints != null) {
+                // import the user again if it is in a later import
+                fingerprints.remove(deactivation.externalSystemId());
+              }
+              int deactivated = progress.addDeactivated();
+              if (deactivated % 100 == 0) {
+                LOGGER.info("Deactivated {} of {} users.", deactivated, deactivations.size());
+              }
+            })
+            .onFailure(e -> {
+              LOGGER.warn("Failed to deactivate user with externalSystemId {}: {}",
+                  deactivation.externalSystemId(), e.getMessage());
+              failedDeactivations.add(new FailedUser()
+                  .withExternalSystemId(deactivation.externalSystemId())
+                  .withUsername(deactivation.username())
+                  .withErrorMessage(e.getMessage()));
+            }));
+    return runner.run(deactivations)
+        .onSuccess(x -> {
+          LOGGER.info("Deactivated {} users, {} deactivations failed.",
+              progress.getDeactivatedRecords(), failedDeactivations.size());
+          response.setDeactivatedRecords(progress.getDeactivatedRecords());
+          response.setFailedDeactivations(failedDeactivations);
+        });
+  }
 
-    List<Future<SingleUserImportResponse>> futures = new ArrayList<>();
-    for (User user : existingUserMap.values()) {
-      if (Boolean.TRUE.equals(user.getActive())) {
-        user.setActive(Boolean.FALSE);
-        futures.add(updateUser(okapiHeaders, user));
-      }
+  private static Future<User> decodeUser(ExistingUser existingUser) {
+    try {
+      return Future.succeededFuture(existingUser.getUser());
+    } catch (UserMappingFailedException e) {
+      return Future.failedFuture(e);
     }
-    return Future.all(futures)
-        .<Void>mapEmpty()
-        .recover(e -> HttpClientUtil.errorManagement(e, "Failed to deactivate users"));
+  }
+
+  private Future<User> getUser(Map<String, String> okapiHeaders, String id) {
+    final String userQuery = UriBuilder.fromPath(USERS_ENDPOINT + "/" + id).build().toString();
+
+    return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userQuery)
+        .send()
+        .expecting(SC_OK)
+        .map(res -> res.bodyAsJsonObject().mapTo(User.class));
   }
 
   /**
@@ -620,20 +1610,6 @@ public class UserImportAPI implements UserImport {
       .queryParam("order", "asc").build().toString();
   }
 
-  /**
-   * Extract users from JSONObject.
-   *
-   * @param result the JSONObject containing the users
-   * @return the users from the JSONObject
-   */
-  private List getUsersFromResult(JsonObject result) {
-    JsonArray array = result.getJsonArray("users");
-    if (array == null) {
-      return Collections.EMPTY_LIST;
-    }
-    return array.getList();
-  }
-
   private String extractErrorMessage(Throwable cause) {
     if (cause != null && !Strings.isNullOrEmpty(cause.getMessage())) {
       return ERROR_MESSAGE + cause.getMessage();
@@ -645,31 +1621,49 @@ public class UserImportAPI implements UserImport {
   /**
    * Create import response from sub-responses.
    *
-   * @param futures the ImportResponse list with the successful/failed user
-   *                creation/update
+   * @param responses the ImportResponse list with the successful/failed user
+   *                  creation/update
    * @return the aggregated ImportResponse
    */
-  private ImportResponse processFutureResponses(List<Future<ImportResponse>> futures) {
+  private ImportResponse processFutureResponses(List<ImportResponse> responses) {
     int created = 0;
     int updated = 0;
+    int unchanged = 0;
     int failed = 0;
     int totalRecords = 0;
     List<FailedUser> failedUsers = new ArrayList<>();
-    for (Future<ImportResponse> currentFuture : futures) {
-      ImportResponse currentResponse = currentFuture.result();
+    for (ImportResponse currentResponse : responses) {
       created += currentResponse.getCreatedRecords();
       updated += currentResponse.getUpdatedRecords();
+      unchanged += currentResponse.getUnchangedRecords();
       failed += currentResponse.getFailedRecords();
       totalRecords += currentResponse.getTotalRecords();
       failedUsers.addAll(currentResponse.getFailedUsers());
     }
     return new ImportResponse().withCreatedRecords(created)
         .withUpdatedRecords(updated)
+        .withUnchangedRecords(unchanged)
         .withFailedRecords(failed)
         .withTotalRecords(totalRecords)
         .withFailedUsers(failedUsers);
   }
 
+  /**
+   * Create the ImportResponse of a partition that failed as a whole and report its users
+   * as failed.
+   */
+  private ImportResponse processPartitionErrorResponse(List<User> partition, UserImportData userImportData,
+      String errorMessage) {
+
+    ImportResponse response = processErrorResponse(partition, errorMessage);
+    if (userImportData.isReportingUserResults()) {
+      partition.forEach(user -> userImportData.reportUserResult(
+          SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(), -1, errorMessage)));
+      response.getFailedUsers().clear();
+    }
+    return response;
+  }
+
   /**
    * Helper function to create ImportResponse.
    *
@@ -677,7 +1671,7 @@ public class UserImportAPI implements UserImport {
    * @param errorMessage   the reason of the failure
    * @return the assembled ImportResponse object
    */
-  private ImportResponse processErrorResponse(List<User> userCollection, String errorMessage) {
+  ImportResponse processErrorResponse(List<User> userCollection, String errorMessage) {
     List<FailedUser> failedUsers = new ArrayList<>();
     for (User user : userCollection) {
       FailedUser failedUser = new FailedUser()
@@ -692,6 +1686,7 @@ public class UserImportAPI implements UserImport {
       .withTotalRecords(userCollection.size())
       .withCreatedRecords(0)
       .withUpdatedRecords(0)
+      .withUnchangedRecords(0)
       .withFailedRecords(userCollection.size())
       .withFailedUsers(failedUsers);
   }
@@ -9,7 +9,15 @@ public class UserImportAPIConstants {
     "Failed to add permissions for user with externalSystemId: ";
   public static final String FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID =
     "Failed to create new user with externalSystemId: ";
+  public static final String FAILED_TO_CREATE_EXISTING_USER_WITH_EXTERNAL_SYSTEM_ID =
+    "A user with the same username, barcode or externalSystemId already exists, failed to create new user with externalSystemId: ";
   public static final String FAILED_TO_UPDATE_USER_WITH_EXTERNAL_SYSTEM_ID = "Failed to update user with externalSystemId: ";
+  public static final String FAILED_TO_DELETE_USER_WITH_ID = "Failed to delete user with id: ";
+  public static final String FAILED_TO_DELETE_PERMISSION_USER_WITH_ID = "Failed to delete permission user with id: ";
+  public static final String USER_ALREADY_EXISTS_WITH_EXTERNAL_SYSTEM_ID =
+    "User already exists (importMode createOnly) with externalSystemId: ";
+  public static final String USER_DOES_NOT_EXIST_WITH_EXTERNAL_SYSTEM_ID =
+    "User does not exist (importMode updateOnly) with externalSystemId: ";
   public static final String FAILED_TO_IMPORT_USERS = "Failed to import users.";
   public static final String FAILED_TO_LIST_ADDRESS_TYPES = "Failed to list address types.";
   public static final String FAILED_TO_LIST_PATRON_GROUPS = "Failed to list patron groups.";
@@ -13,6 +13,7 @@ import io.vertx.core.json.JsonObject;
 
 import org.folio.util.HttpClientUtil;
 import org.folio.util.JsonObjectUtil;
+import org.folio.util.ReferenceDataCache;
 
 public class AddressTypeService {
 
@@ -20,6 +21,10 @@ public class AddressTypeService {
   private static final String ADDRESS_TYPE_NAME_OBJECT_KEY = "addressType";
 
   public Future<Map<String, String>> getAddressTypes(Map<String, String> okapiHeaders) {
+    return ReferenceDataCache.get(okapiHeaders, ADDRESS_TYPES_ARRAY_KEY, () -> loadAddressTypes(okapiHeaders));
+  }
+
+  private Future<Map<String, String>> loadAddressTypes(Map<String, String> okapiHeaders) {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, ADDRESS_TYPES_ENDPOINT + LIMIT_ALL)
         .send()
         .expecting(SC_OK)
@@ -10,6 +10,7 @@ import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_OK;
 import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_NO_CONTENT;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,9 +19,8 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.Json;
-import io.vertx.core.json.JsonObject;
 import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -32,6 +32,8 @@ import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.SelectFieldOption;
 import org.folio.rest.jaxrs.model.SelectFieldOptions;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.JsonBufferWriter;
+import org.folio.util.JsonObjectUtil;
 import org.folio.util.OkapiUtil;
 
 public class CustomFieldsService {
@@ -39,8 +41,7 @@ public class CustomFieldsService {
   public Future<Set<CustomField>> prepareCustomFields(UserImportData importData, Map<String, String> okapiHeaders) {
     Map<String, String> headers = new CaseInsensitiveMap<>(okapiHeaders);
 
-    return OkapiUtil.setModuleIdForMultipleInterface(CUSTOM_FIELDS_INTERFACE_NAME, CUSTOM_FIELDS_MODULE_NAME, headers)
-      .compose(o -> getCustomFields(headers))
+    return getCustomFields(headers, true)
       .compose(systemCustomFields -> {
         Set<CustomField> importCustomFields = importData.getCustomFields();
         if (importCustomFields.isEmpty()) {
@@ -133,8 +134,8 @@ public class CustomFieldsService {
 
   private Future<Void> updateCustomField(CustomField customField, Map<String, String> okapiHeaders) {
     String query = CUSTOM_FIELDS_ENDPOINT + "/" + customField.getId();
-    return HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, query)
-        .sendJson(customField)
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, query);
+    return JsonBufferWriter.sendJson(request, customField)
         .expecting(SC_NO_CONTENT)
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_UPDATE_CUSTOM_FIELD))
         .mapEmpty();
@@ -147,18 +148,29 @@ public class CustomFieldsService {
     return ObjectUtils.defaultIfNull(extractFunc.apply(o1), extractFunc.apply(o2));
   }
 
-  private Future<Set<CustomField>> getCustomFields(Map<String, String> headers) {
-    return HttpClientUtil.getRequestOkapi(HttpMethod.GET, headers, CUSTOM_FIELDS_ENDPOINT + LIMIT_ALL)
-        .send()
-        .expecting(SC_OK)
-        .map(res -> extractCustomFields(res.bodyAsJsonObject()))
-        .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_LIST_CUSTOM_FIELDS));
+  /**
+   * Get the custom fields of the module providing the custom-fields interface. If the
+   * request fails with 400 or 404 and the module id was cached, the module id is looked up
+   * again and the request is retried once.
+   */
+  private Future<Set<CustomField>> getCustomFields(Map<String, String> headers, boolean retry) {
+    return OkapiUtil.setModuleIdForMultipleInterface(CUSTOM_FIELDS_INTERFACE_NAME, CUSTOM_FIELDS_MODULE_NAME, headers)
+        .compose(o -> HttpClientUtil.getRequestOkapi(HttpMethod.GET, headers, CUSTOM_FIELDS_ENDPOINT + LIMIT_ALL)
+            .send()
+            .compose(res -> {
+              if (retry && (res.statusCode() == 400 || res.statusCode() == 404)
+                  && OkapiUtil.invalidateModuleId(CUSTOM_FIELDS_INTERFACE_NAME, CUSTOM_FIELDS_MODULE_NAME, headers)) {
+                return getCustomFields(headers, false);
+              }
+              return Future.succeededFuture(res)
+                  .expecting(SC_OK)
+                  .map(ok -> extractCustomFields(ok.body()))
+                  .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_LIST_CUSTOM_FIELDS));
+            }, e -> HttpClientUtil.errorManagement(e, FAILED_TO_LIST_CUSTOM_FIELDS)));
   }
 
-  private Set<CustomField> extractCustomFields(JsonObject json) {
-    return json.getJsonArray("customFields").stream()
-      .map(o -> Json.decodeValue(o.toString(), CustomField.class))
-      .collect(Collectors.toSet());
+  private Set<CustomField> extractCustomFields(Buffer body) {
+    return new HashSet<>(JsonObjectUtil.extractList(body, "customFields", CustomField.class));
   }
 
 }
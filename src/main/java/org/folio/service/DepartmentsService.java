@@ -10,21 +10,22 @@ import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_CREATED;
 import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_NO_CONTENT;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.Json;
-import io.vertx.core.json.JsonObject;
 import org.apache.commons.lang3.StringUtils;
 
 import org.folio.model.UserImportData;
 import org.folio.rest.jaxrs.model.Department;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.JsonBufferWriter;
+import org.folio.util.JsonObjectUtil;
 
 public class DepartmentsService {
 
@@ -45,31 +46,29 @@ public class DepartmentsService {
       .recover(e -> HttpClientUtil.errorManagement(e, "Failed to prepare departments"));
   }
 
-  public Optional<Department> findDepartmentByName(Set<Department> departments, String name) {
-    return departments.stream()
-        .filter(department -> department.getName().equals(name))
-        .findFirst();
-  }
-
-  public Optional<Department> findDepartmentByCode(Set<Department> departments, String code) {
-    return departments.stream()
-        .filter(department -> department.getCode().equals(code))
-        .findFirst();
-  }
-
+  /**
+   * Create the included departments that do not exist by name or code, and rename the
+   * departments that only exist by code. The system departments are indexed by name and
+   * by code once, instead of being searched for each included department.
+   */
   private Future<Set<Department>> updateSystemDepartments(Set<Department> importDepartments,
       Set<Department> systemDepartments, Map<String, String> okapiHeaders) {
 
+    Map<String, Department> departmentsByName = new HashMap<>();
+    Map<String, Department> departmentsByCode = new HashMap<>();
+    for (Department systemDepartment : systemDepartments) {
+      departmentsByName.putIfAbsent(systemDepartment.getName(), systemDepartment);
+      departmentsByCode.putIfAbsent(systemDepartment.getCode(), systemDepartment);
+    }
     List<Future<Void>> futures = new ArrayList<>();
     for (Department importDepartment : importDepartments) {
-      Optional<Department> existedDepartmentByName = findDepartmentByName(systemDepartments, importDepartment.getName());
-      if (existedDepartmentByName.isEmpty()) {
-        Optional<Department> existedDepartmentByCode =
-          findDepartmentByCode(systemDepartments, importDepartment.getCode());
-        if (existedDepartmentByCode.isPresent()) {
-          Department systemDepartment = existedDepartmentByCode.get();
+      if (!departmentsByName.containsKey(importDepartment.getName())) {
+        Department systemDepartment = departmentsByCode.get(importDepartment.getCode());
+        if (systemDepartment != null) {
           futures.add(updateDepartment(systemDepartment, importDepartment, okapiHeaders));
+          departmentsByName.remove(systemDepartment.getName(), systemDepartment);
           systemDepartment.setName(importDepartment.getName());
+          departmentsByName.put(systemDepartment.getName(), systemDepartment);
         } else {
           futures.add(createDepartment(importDepartment, okapiHeaders)
             .onSuccess(systemDepartments::add)
@@ -84,7 +83,7 @@ public class DepartmentsService {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, DEPARTMENTS_ENDPOINT + LIMIT_ALL)
         .send()
         .expecting(SC_OK)
-        .map(res -> extractDepartments(res.bodyAsJsonObject()))
+        .map(res -> extractDepartments(res.body()))
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_LIST_DEPARTMENTS));
   }
 
@@ -92,16 +91,17 @@ public class DepartmentsService {
     if (StringUtils.isBlank(department.getCode())) {
       department.setCode(generateCode(department.getName()));
     }
-    return HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, DEPARTMENTS_ENDPOINT)
-        .sendJsonObject(JsonObject.mapFrom(department))
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, DEPARTMENTS_ENDPOINT);
+    return JsonBufferWriter.sendJson(request, department)
         .expecting(SC_CREATED)
         .map(res -> res.bodyAsJsonObject().mapTo(Department.class))
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_CREATE_DEPARTMENT_MESSAGE));
   }
 
   private Future<Void> updateDepartment(Department existed, Department updated, Map<String, String> okapiHeaders) {
-    return HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, DEPARTMENTS_ENDPOINT + "/" + existed.getId())
-        .sendJsonObject(JsonObject.mapFrom(updated))
+    String path = DEPARTMENTS_ENDPOINT + "/" + existed.getId();
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, path);
+    return JsonBufferWriter.sendJson(request, updated)
         .expecting(SC_NO_CONTENT)
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_UPDATE_DEPARTMENT_MESSAGE))
         .mapEmpty();
@@ -111,11 +111,8 @@ public class DepartmentsService {
     return StringUtils.replaceChars(name.toUpperCase(), ' ', '_');
   }
 
-  private Set<Department> extractDepartments(JsonObject result) {
-    return result.getJsonArray(DEPARTMENTS_ARRAY_KEY)
-      .stream()
-      .map(o -> Json.decodeValue(o.toString(), Department.class))
-      .collect(Collectors.toSet());
+  private Set<Department> extractDepartments(Buffer body) {
+    return new HashSet<>(JsonObjectUtil.extractList(body, DEPARTMENTS_ARRAY_KEY, Department.class));
   }
 
 }
@@ -0,0 +1,130 @@
+package org.folio.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.ImportProgress;
+import org.folio.model.UserImportData;
+import org.folio.rest.jaxrs.model.ImportJob;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.util.ImportConfig;
+
+/**
+ * Registry of the user imports running in the background.
+ *
+ * <p>The jobs are kept in memory of the module instance that runs them, they are neither
+ * persisted nor shared with other instances. A finished job is removed after
+ * {@link ImportConfig#jobRetentionMinutes()} minutes.
+ */
+public class ImportJobService {
+
+  private static final Logger LOGGER = LogManager.getLogger(ImportJobService.class);
+
+  private static final Map<String, Job> JOBS = new ConcurrentHashMap<>();
+
+  /**
+   * Start an import job.
+   *
+   * @param tenant     the tenant of the import
+   * @param importData the users to import, its progress is reported by the job
+   * @param importer   runs the import; the resulting import response is stored in the job
+   * @return the started job
+   */
+  public ImportJob start(String tenant, UserImportData importData, Supplier<Future<ImportResponse>> importer) {
+    removeExpiredJobs();
+    Job job = new Job(UUID.randomUUID().toString(), importData);
+    String key = key(tenant, job.id);
+    JOBS.put(key, job);
+    Context context = Vertx.currentContext();
+    LOGGER.info("Started import job {} of tenant {} with {} users", job.id, tenant, job.totalRecords);
+    importer.get()
+        .onSuccess(job::finish)
+        .onFailure(e -> job.finish(new ImportResponse()
+            .withMessage(e.getMessage())
+            .withError(e.getMessage())
+            .withTotalRecords(job.totalRecords)))
+        .onComplete(x -> {
+          LOGGER.info("Finished import job {} of tenant {}", job.id, tenant);
+          if (context != null) {
+            long retention = TimeUnit.MINUTES.toMillis(ImportConfig.jobRetentionMinutes());
+            context.owner().setTimer(Math.max(1, retention), timer -> JOBS.remove(key, job));
+          }
+        });
+    return job.toImportJob();
+  }
+
+  public Optional<ImportJob> get(String tenant, String id) {
+    removeExpiredJobs();
+    return Optional.ofNullable(JOBS.get(key(tenant, id))).map(Job::toImportJob);
+  }
+
+  private static void removeExpiredJobs() {
+    Instant expired = Instant.now().minus(Duration.ofMinutes(ImportConfig.jobRetentionMinutes()));
+    JOBS.values().removeIf(job -> job.endDate != null && job.endDate.toInstant().isBefore(expired));
+  }
+
+  private static String key(String tenant, String id) {
+    return tenant + "/" + id;
+  }
+
+  private static class Job {
+    private final String id;
+    private final Date startDate = new Date();
+    private final int totalRecords;
+    private final ImportProgress progress;
+    private volatile Date endDate;
+    private volatile ImportResponse result;
+
+    Job(String id, UserImportData importData) {
+      this.id = id;
+      this.totalRecords = importData.getUsers().size();
+      this.progress = importData.getProgress();
+    }
+
+    void finish(ImportResponse response) {
+      result = response;
+      endDate = new Date();
+    }
+
+    ImportJob toImportJob() {
+      ImportResponse response = result;
+      ImportJob job = new ImportJob()
+          .withId(id)
+          .withStartDate(startDate)
+          .withEndDate(endDate)
+          .withTotalRecords(totalRecords)
+          .withResult(response);
+      if (response == null) {
+        return job
+            .withStatus(ImportJob.Status.IN_PROGRESS)
+            .withCreatedRecords(progress.getCreatedRecords())
+            .withUpdatedRecords(progress.getUpdatedRecords())
+            .withUnchangedRecords(progress.getUnchangedRecords())
+            .withFailedRecords(progress.getFailedRecords())
+            .withDeactivatedRecords(progress.getDeactivatedRecords())
+            .withRemainingRecords(Math.max(0, totalRecords - progress.getProcessedRecords()));
+      }
+      return job
+          .withStatus(response.getError() == null ? ImportJob.Status.COMPLETED : ImportJob.Status.FAILED)
+          .withCreatedRecords(response.getCreatedRecords())
+          .withUpdatedRecords(response.getUpdatedRecords())
+          .withUnchangedRecords(response.getUnchangedRecords())
+          .withFailedRecords(response.getFailedRecords())
+          .withDeactivatedRecords(response.getDeactivatedRecords())
+          .withRemainingRecords(0);
+    }
+  }
+}
@@ -12,6 +12,7 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import org.folio.util.HttpClientUtil;
 import org.folio.util.JsonObjectUtil;
+import org.folio.util.ReferenceDataCache;
 
 public class PatronGroupService {
 
@@ -19,6 +20,10 @@ public class PatronGroupService {
   private static final String USER_GROUP_NAME_OBJECT_KEY = "group";
 
   public Future<Map<String, String>> getPatronGroups(Map<String, String> okapiHeaders) {
+    return ReferenceDataCache.get(okapiHeaders, USER_GROUPS_ARRAY_KEY, () -> loadPatronGroups(okapiHeaders));
+  }
+
+  private Future<Map<String, String>> loadPatronGroups(Map<String, String> okapiHeaders) {
     final String query = PATRON_GROUPS_ENDPOINT + LIMIT_ALL;
 
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, query)
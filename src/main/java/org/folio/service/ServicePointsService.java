@@ -12,6 +12,7 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import org.folio.util.HttpClientUtil;
 import org.folio.util.JsonObjectUtil;
+import org.folio.util.ReferenceDataCache;
 
 public class ServicePointsService {
 
@@ -20,6 +21,10 @@ public class ServicePointsService {
 
 
   public Future<Map<String, String>> getServicePoints(Map<String, String> okapiHeaders) {
+    return ReferenceDataCache.get(okapiHeaders, SERVICE_POINTS_ARRAY_KEY, () -> loadServicePoints(okapiHeaders));
+  }
+
+  private Future<Map<String, String>> loadServicePoints(Map<String, String> okapiHeaders) {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, SERVICE_POINTS_ENDPOINT + LIMIT_ALL)
         .send()
         .expecting(SC_OK)
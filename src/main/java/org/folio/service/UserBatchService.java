@@ -0,0 +1,150 @@
+package org.folio.service;
+
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_CREATE_EXISTING_USER_WITH_EXTERNAL_SYSTEM_ID;
+import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_OK;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.SingleUserImportResponse;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.util.HttpClientUtil;
+import org.folio.util.ImportConfig;
+import org.folio.util.JsonBufferWriter;
+
+/**
+ * Creates and updates the users of a partition with a single request to the batch users
+ * endpoint configured by {@link ImportConfig#batchUsersEndpoint()}.
+ *
+ * <p>The request body is {@code {"users": [...]}}, the users with an existing id are
+ * updated, the others are created. The response body is
+ * {@code {"results": [{"id": "...", "status": 201, "message": "..."}]}} with an HTTP status
+ * code per user; a 2xx status code means success.
+ *
+ * <p>If the endpoint responds with 404, 405 or 501 it is considered unavailable for the
+ * tenant and {@link #isAvailable} returns false for the next
+ * {@link ImportConfig#batchUsersRetrySeconds()} seconds, the caller falls back to single
+ * user requests. The endpoint is tried again afterwards, so that a transient error, for
+ * example during an upgrade of mod-users, does not disable it until the module restarts.
+ */
+public class UserBatchService {
+
+  private static final Logger LOGGER = LogManager.getLogger(UserBatchService.class);
+
+  /** The time (System.nanoTime) until which the endpoint is unavailable, by Okapi URL and tenant. */
+  private static final Map<String, Long> UNAVAILABLE_UNTIL = new ConcurrentHashMap<>();
+
+  /**
+   * Thrown if the batch users endpoint is not available.
+   */
+  public static class BatchEndpointUnavailableException extends RuntimeException {
+    public BatchEndpointUnavailableException(String message) {
+      super(message);
+    }
+  }
+
+  public boolean isAvailable(Map<String, String> okapiHeaders) {
+    if (StringUtils.isBlank(ImportConfig.batchUsersEndpoint())) {
+      return false;
+    }
+    String key = key(okapiHeaders);
+    Long unavailableUntil = UNAVAILABLE_UNTIL.get(key);
+    if (unavailableUntil == null) {
+      return true;
+    }
+    if (unavailableUntil - System.nanoTime() > 0) {
+      return false;
+    }
+    UNAVAILABLE_UNTIL.remove(key, unavailableUntil);
+    return true;
+  }
+
+  /**
+   * Create or update users.
+   *
+   * @param users   the users to write
+   * @param updates whether the user at the same position is updated
+   * @return the outcome of each user in the order of the users, fails with
+   *     {@link BatchEndpointUnavailableException} if the endpoint is not available
+   */
+  public Future<List<SingleUserImportResponse>> write(Map<String, String> okapiHeaders, List<User> users,
+      List<Boolean> updates) {
+
+    String endpoint = ImportConfig.batchUsersEndpoint();
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, endpoint);
+    return JsonBufferWriter.sendJson(request, Map.of("users", users))
+        .compose(res -> {
+          if (res.statusCode() == 404 || res.statusCode() == 405 || res.statusCode() == 501) {
+            LOGGER.warn("Batch users endpoint {} not available: {}, falling back to single user requests",
+                endpoint, res.statusCode());
+            UNAVAILABLE_UNTIL.put(key(okapiHeaders),
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(ImportConfig.batchUsersRetrySeconds()));
+            return Future.failedFuture(new BatchEndpointUnavailableException(endpoint + ": " + res.statusCode()));
+          }
+          if (res.statusCode() != SC_OK) {
+            return Future.succeededFuture(allFailed(users, res.statusCode(), res.bodyAsString()));
+          }
+          return Future.succeededFuture(mapResults(res.bodyAsJsonObject(), users, updates));
+        });
+  }
+
+  private static List<SingleUserImportResponse> mapResults(JsonObject body, List<User> users, List<Boolean> updates) {
+    Map<String, JsonObject> results = new HashMap<>();
+    JsonArray array = body == null ? null : body.getJsonArray("results");
+    if (array != null) {
+      for (int i = 0; i < array.size(); i++) {
+        JsonObject result = array.getJsonObject(i);
+        results.put(result.getString("id"), result);
+      }
+    }
+    List<SingleUserImportResponse> responses = new ArrayList<>(users.size());
+    for (int i = 0; i < users.size(); i++) {
+      User user = users.get(i);
+      JsonObject result = results.get(user.getId());
+      if (result == null) {
+        responses.add(SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(), -1,
+            "No result for user in batch response"));
+        continue;
+      }
+      int status = result.getInteger("status", 500);
+      if (status == 422 && !Boolean.TRUE.equals(updates.get(i))) {
+        responses.add(SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(), status,
+            FAILED_TO_CREATE_EXISTING_USER_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId() + ": "
+                + result.getString("message")));
+      } else if (status / 100 != 2) {
+        responses.add(SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(), status,
+            result.getString("message")));
+      } else if (Boolean.TRUE.equals(updates.get(i))) {
+        responses.add(SingleUserImportResponse.updated(user.getExternalSystemId()));
+      } else {
+        responses.add(SingleUserImportResponse.created(user.getExternalSystemId()));
+      }
+    }
+    return responses;
+  }
+
+  private static List<SingleUserImportResponse> allFailed(List<User> users, int status, String message) {
+    return users.stream()
+        .map(user -> SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(), status,
+            "Failed to write users in batch: " + message))
+        .toList();
+  }
+
+  private static String key(Map<String, String> okapiHeaders) {
+    return okapiHeaders.get(XOkapiHeaders.URL) + " " + TenantTool.tenantId(okapiHeaders);
+  }
+}
@@ -1,89 +1,62 @@
 package org.folio.service;
 
-import static org.folio.rest.jaxrs.model.CustomField.Type.MULTI_SELECT_DROPDOWN;
-import static org.folio.rest.jaxrs.model.CustomField.Type.RADIO_BUTTON;
-import static org.folio.rest.jaxrs.model.CustomField.Type.SINGLE_SELECT_DROPDOWN;
-
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.function.Consumer;
+import java.util.Objects;
 
-import io.vertx.core.json.JsonObject;
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jetbrains.annotations.NotNull;
 
+import org.folio.model.ExistingUser;
 import org.folio.model.UserImportData;
-import org.folio.model.exception.CustomFieldMappingFailedException;
-import org.folio.model.exception.DepartmentMappingFailedException;
-import org.folio.model.exception.PatronGroupMappingFailedException;
+import org.folio.model.UserMappingPlan;
 import org.folio.model.exception.UserMappingFailedException;
 import org.folio.rest.jaxrs.model.Address;
-import org.folio.rest.jaxrs.model.CustomField;
-import org.folio.rest.jaxrs.model.CustomFields;
 import org.folio.rest.jaxrs.model.RequestPreference;
-import org.folio.rest.jaxrs.model.SelectFieldOption;
 import org.folio.rest.jaxrs.model.User;
+import org.folio.util.ImportConfig;
 
 public class UserDataProcessingService {
 
   private static final Logger LOGGER = LogManager.getLogger(UserDataProcessingService.class);
 
-  private static final Map<String, String> preferredContactTypeIds = new CaseInsensitiveMap<>();
-
-  static {
-    preferredContactTypeIds.put("mail", "001");
-    preferredContactTypeIds.put("email", "002");
-    preferredContactTypeIds.put("text", "003");
-    preferredContactTypeIds.put("phone", "004");
-    preferredContactTypeIds.put("mobile", "005");
-  }
-
-  private final CustomFieldsService customFieldsService;
-  private final DepartmentsService departmentService;
-
-
-  public UserDataProcessingService(DepartmentsService departmentService,
-      CustomFieldsService customFieldsService) {
-    this.departmentService = departmentService;
-    this.customFieldsService = customFieldsService;
-  }
-
-  public Map<String, User> extractExistingUsers(List<Map> existingUserList) throws UserMappingFailedException {
-    Map<String, User> existingUsers = new HashMap<>();
-    for (Map existingUser : existingUserList) {
-      JsonObject user = JsonObject.mapFrom(existingUser);
-      try {
-        User mappedUser = user.mapTo(User.class);
-        LOGGER.trace("The external system id of the user is: " + mappedUser.getExternalSystemId());
-        existingUsers.put(mappedUser.getExternalSystemId(), mappedUser);
-      } catch (Exception ex) {
-        LOGGER.error("Failed to map user {}", user, ex);
-        throw new UserMappingFailedException("Failed to map user " + user.toString());
+  /**
+   * Index the existing users by externalSystemId.
+   *
+   * <p>Unless {@link ImportConfig#lazyUserDecoding()} is set each user is decoded now so
+   * that a schema mismatch fails all users of the search. Otherwise a user is only decoded
+   * when its full record is needed, to merge it or to deactivate it.
+   */
+  public Map<String, ExistingUser> extractExistingUsers(List<ExistingUser> existingUserList)
+      throws UserMappingFailedException {
+
+    boolean lazy = ImportConfig.lazyUserDecoding();
+    Map<String, ExistingUser> existingUsers = new HashMap<>();
+    for (ExistingUser existingUser : existingUserList) {
+      if (!lazy) {
+        try {
+          existingUser.getUser();
+        } catch (UserMappingFailedException ex) {
+          LOGGER.error(ex.getMessage());
+          throw ex;
+        }
       }
+      LOGGER.trace("The external system id of the user is: {}", existingUser.getExternalSystemId());
+      existingUsers.put(existingUser.getExternalSystemId(), existingUser);
     }
 
     return existingUsers;
   }
 
+  /**
+   * Map the user from the import format to the mod-users format using the
+   * {@link UserImportData#getMappingPlan() mapping plan} of the import.
+   */
   public void updateUserData(User user, UserImportData userImportData) {
-    if (StringUtils.isNotEmpty(userImportData.getSourceType())) {
-      user.setExternalSystemId(userImportData.getSourceType() + "_" + user.getExternalSystemId());
-    }
-    setPatronGroup(user, userImportData);
-    setPersonalData(user, userImportData);
-    setDepartments(user, userImportData);
-    setCustomFields(user, userImportData);
+    userImportData.getMappingPlan().map(user);
   }
 
   public void updateUserPreference(RequestPreference preference, UserImportData userImportData) {
@@ -91,187 +64,138 @@ public class UserDataProcessingService {
   }
 
   /**
-   * Currently this deep copy only works for addresses.
+   * Merge the incoming user into the existing user without JSON round trips.
    *
-   * <p>For a List (proxyFor), a Set (departments) or a Map (meta) the new replaces the old one,
-   * the old elements are not kept.
+   * <p>Each property of the incoming user that is not null replaces the property of the
+   * existing user. For a List (proxyFor), a Set (departments), a Map (meta) or an object
+   * (personal, customFields) the new replaces the old one, the old elements are not kept,
+   * with two exceptions: the addresses are merged by address type, the incoming address
+   * replaces the existing address with the same type, and a blank incoming
+   * preferredFirstName keeps the existing one.
+   *
+   * <p>The existing user is updated and returned.
    */
   public static User updateExistingUserWithIncomingFields(User user, User existingUser) {
-    JsonObject current = JsonObject.mapFrom(user);
-    JsonObject existing = JsonObject.mapFrom(existingUser);
-
-    List<Address> addresses = null;
-
-    existing.mergeIn(current);
+    var existingPersonal = existingUser.getPersonal();
+    mergeUser(user, existingUser);
 
-    User response = existing.mapTo(User.class);
-
-    if (existingUser.getPersonal() != null) {
-      List<Address> currentAddresses = null;
-      List<Address> existingAddresses = existingUser.getPersonal().getAddresses();
-      if (user.getPersonal() != null) {
-        currentAddresses = user.getPersonal().getAddresses();
-      }
-      if (currentAddresses == null) {
-        addresses = existingAddresses;
+    if (existingPersonal == null) {
+      return existingUser;
+    }
+    var personal = existingUser.getPersonal();
+    if (user.getPersonal() != null) {
+      if (user.getPersonal().getAddresses() != null) {
+        personal.setAddresses(mergeAddresses(existingPersonal.getAddresses(), user.getPersonal().getAddresses()));
       } else {
-        Map<String, Address> addressMap = new HashMap<>();
-        existingAddresses.forEach(address -> addressMap.put(address.getAddressTypeId(), address));
-        currentAddresses.forEach(address -> addressMap.put(address.getAddressTypeId(), address));
-
-        addresses = new ArrayList<>(addressMap.values());
+        personal.setAddresses(existingPersonal.getAddresses());
+      }
+      if (StringUtils.isBlank(user.getPersonal().getPreferredFirstName())) {
+        personal.setPreferredFirstName(existingPersonal.getPreferredFirstName());
       }
     }
+    return existingUser;
+  }
 
-    if (user.getPersonal() != null && StringUtils.isBlank(user.getPersonal().getPreferredFirstName())) {
-      response.getPersonal().setPreferredFirstName(existingUser.getPersonal().getPreferredFirstName());
+  private static void mergeUser(User from, User to) {
+    if (from.getUsername() != null) {
+      to.setUsername(from.getUsername());
     }
-
-    if (addresses != null) {
-      response.getPersonal().setAddresses(addresses);
+    if (from.getId() != null) {
+      to.setId(from.getId());
     }
-
-    return response;
-  }
-
-  private void setPersonalData(User user, UserImportData userImportData) {
-    if (user.getPersonal() != null) {
-      setAddressTypes(user, userImportData);
-      setPreferredContactType(user);
+    if (from.getExternalSystemId() != null) {
+      to.setExternalSystemId(from.getExternalSystemId());
     }
-  }
-
-  private void setPreferredContactType(User user) {
-    String preferredContactTypeName = user.getPersonal().getPreferredContactTypeId();
-    user.getPersonal()
-      .setPreferredContactTypeId(preferredContactTypeIds.getOrDefault(preferredContactTypeName, null));
-  }
-
-  private void setAddressTypes(User user, UserImportData userImportData) {
-    Map<String, String> addressTypes = userImportData.getSystemData().getAddressTypes();
-    List<Address> addressList = user.getPersonal().getAddresses();
-    if (CollectionUtils.isNotEmpty(addressList)) {
-      List<Address> updatedAddresses = getExistingAddresses(addressTypes, addressList);
-      user.getPersonal().setAddresses(updatedAddresses);
+    if (from.getBarcode() != null) {
+      to.setBarcode(from.getBarcode());
     }
-  }
-
-  private void setPreferenceAddressType(RequestPreference preference, UserImportData userImportData) {
-    Map<String, String> addressTypes = userImportData.getSystemData().getAddressTypes();
-    String addressTypeName = preference.getDefaultDeliveryAddressTypeId();
-    String addressTypeId = addressTypes.getOrDefault(addressTypeName, null);
-    preference.setDefaultDeliveryAddressTypeId(addressTypeId);
-  }
-
-  @NotNull
-  private List<Address> getExistingAddresses(Map<String, String> addressTypes, List<Address> addressList) {
-    List<Address> updatedAddresses = new ArrayList<>();
-    addressList.stream()
-      .filter(address -> address.getAddressTypeId() != null && addressTypes.containsKey(address.getAddressTypeId()))
-      .forEach(address -> {
-        address.setAddressTypeId(addressTypes.get(address.getAddressTypeId()));
-        updatedAddresses.add(address);
-      });
-    return updatedAddresses;
-  }
-
-  static void setPatronGroup(User user, UserImportData userImportData) {
-    String patronGroupName = user.getPatronGroup();
-    if (patronGroupName == null) {
-      return;
+    if (from.getActive() != null) {
+      to.setActive(from.getActive());
     }
-    Map<String, String> patronGroups = userImportData.getSystemData().getPatronGroups();
-    String patronGroupId = patronGroups.get(patronGroupName);
-    if (patronGroupId == null) {
-      throw new PatronGroupMappingFailedException(patronGroupName);
+    if (from.getType() != null) {
+      to.setType(from.getType());
     }
-    user.setPatronGroup(patronGroupId);
-  }
-
-  private void setDepartments(User user, UserImportData userImportData) {
-    var departments = user.getDepartments();
-    if (CollectionUtils.isNotEmpty(departments)) {
-      var systemDepartments = userImportData.getSystemData().getDepartments();
-      Set<String> departmentIds = new HashSet<>();
-      Set<String> missedDepartmentNames = new TreeSet<>();
-
-      for (String departmentName : departments) {
-        departmentService.findDepartmentByName(systemDepartments, departmentName)
-          .ifPresentOrElse(department -> departmentIds.add(department.getId()),
-            () -> missedDepartmentNames.add(departmentName)
-          );
-      }
-
-      if (missedDepartmentNames.isEmpty()) {
-        user.setDepartments(departmentIds);
-      } else {
-        throw new DepartmentMappingFailedException(missedDepartmentNames);
-      }
+    if (from.getPatronGroup() != null) {
+      to.setPatronGroup(from.getPatronGroup());
+    }
+    if (from.getDepartments() != null) {
+      to.setDepartments(from.getDepartments());
+    }
+    if (from.getMeta() != null) {
+      to.setMeta(from.getMeta());
+    }
+    if (from.getProxyFor() != null) {
+      to.setProxyFor(from.getProxyFor());
+    }
+    if (from.getPersonal() != null) {
+      to.setPersonal(from.getPersonal());
+    }
+    if (from.getEnrollmentDate() != null) {
+      to.setEnrollmentDate(from.getEnrollmentDate());
+    }
+    if (from.getExpirationDate() != null) {
+      to.setExpirationDate(from.getExpirationDate());
+    }
+    if (from.getCreatedDate() != null) {
+      to.setCreatedDate(from.getCreatedDate());
+    }
+    if (from.getUpdatedDate() != null) {
+      to.setUpdatedDate(from.getUpdatedDate());
+    }
+    if (from.getMetadata() != null) {
+      to.setMetadata(from.getMetadata());
+    }
+    if (from.getTags() != null) {
+      to.setTags(from.getTags());
+    }
+    if (from.getCustomFields() != null) {
+      to.setCustomFields(from.getCustomFields());
+    }
+    if (from.getPreferredEmailCommunication() != null) {
+      to.setPreferredEmailCommunication(from.getPreferredEmailCommunication());
+    }
+    if (from.getRequestPreference() != null) {
+      to.setRequestPreference(from.getRequestPreference());
     }
   }
 
-  private void setCustomFields(User user, UserImportData userImportData) {
-    CustomFields customFields = user.getCustomFields();
-    if (customFields == null)
-      return;
-    var systemCustomFields = userImportData.getSystemData().getCustomFields();
-    var userCustomFields = customFields.getAdditionalProperties();
-
-    Set<String> missingCustomFieldsRefIds = new TreeSet<>();
-    Map<String, Set<String>> missingOptions = new TreeMap<>();
-    userCustomFields.entrySet().forEach(customFieldEntry -> {
-        String refId = customFieldEntry.getKey();
-        customFieldsService.findCustomFieldByRefId(systemCustomFields, refId)
-          .ifPresentOrElse(customFieldDefinition ->
-              setOptionIds(userCustomFields, customFieldDefinition, customFieldEntry, missingOptions),
-            () -> missingCustomFieldsRefIds.add(refId)
-          );
+  /**
+   * Merge addresses by address type, an incoming address replaces the address with the
+   * same type, and of several addresses with the same type the last one wins.
+   */
+  private static List<Address> mergeAddresses(List<Address> existingAddresses, List<Address> incomingAddresses) {
+    List<Address> addresses = new ArrayList<>(
+        (existingAddresses == null ? 0 : existingAddresses.size()) + incomingAddresses.size());
+    if (existingAddresses != null) {
+      for (Address address : existingAddresses) {
+        putAddress(addresses, address);
       }
-    );
-    if (!missingCustomFieldsRefIds.isEmpty()) {
-      throw new CustomFieldMappingFailedException(missingCustomFieldsRefIds, missingOptions);
-    } else if (!missingOptions.isEmpty()) {
-      throw new CustomFieldMappingFailedException(Collections.emptySet(), missingOptions);
     }
+    for (Address address : incomingAddresses) {
+      putAddress(addresses, address);
+    }
+    return addresses;
   }
 
-  private void setOptionIds(Map<String, Object> userCustomFields, CustomField definition,
-                                   Map.Entry<String, Object> customFieldEntry,
-                                   Map<String, Set<String>> missingOptions) {
-    if (isSelectableField(definition)) {
-      String refId = customFieldEntry.getKey();
-      Object value = customFieldEntry.getValue();
-      if (value instanceof String) {
-        setOptionId(value, refId, definition, opt -> userCustomFields.put(refId, opt.getId()), missingOptions);
-      } else if (value instanceof List) {
-        @SuppressWarnings("unchecked")
-        List<String> values = (List<String>) value;
-        List<String> optIds = new ArrayList<>();
-        for (String v : values) {
-          setOptionId(v, refId, definition, opt -> optIds.add(opt.getId()), missingOptions);
-        }
-        userCustomFields.put(refId, optIds);
+  private static void putAddress(List<Address> addresses, Address address) {
+    for (int i = 0; i < addresses.size(); i++) {
+      if (Objects.equals(addresses.get(i).getAddressTypeId(), address.getAddressTypeId())) {
+        addresses.set(i, address);
+        return;
       }
     }
+    addresses.add(address);
   }
 
-  private void setOptionId(Object value, String refId, CustomField definition,
-                                  Consumer<SelectFieldOption> optionConsumer,
-                                  Map<String, Set<String>> missingOptions) {
-    definition.getSelectField().getOptions().getValues().stream()
-      .filter(opt -> opt.getValue().equals(value))
-      .findFirst()
-      .ifPresentOrElse(optionConsumer, () -> getEntrySet(missingOptions, refId).add((String) value)
-      );
-  }
-
-  private Set<String> getEntrySet(Map<String, Set<String>> missingCustomFieldOptions, String refId) {
-    return missingCustomFieldOptions.computeIfAbsent(refId, s -> new TreeSet<>());
+  private void setPreferenceAddressType(RequestPreference preference, UserImportData userImportData) {
+    Map<String, String> addressTypes = userImportData.getSystemData().getAddressTypes();
+    String addressTypeName = preference.getDefaultDeliveryAddressTypeId();
+    String addressTypeId = addressTypes.getOrDefault(addressTypeName, null);
+    preference.setDefaultDeliveryAddressTypeId(addressTypeId);
   }
 
-  private boolean isSelectableField(CustomField customField) {
-    return customField.getType() == RADIO_BUTTON || customField.getType() == MULTI_SELECT_DROPDOWN || customField
-      .getType() == SINGLE_SELECT_DROPDOWN;
+  static void setPatronGroup(User user, UserImportData userImportData) {
+    UserMappingPlan.mapPatronGroup(user, userImportData.getSystemData().getPatronGroups());
   }
 
 }
@@ -10,13 +10,15 @@ import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_OK;
 import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_CREATED;
 import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_NO_CONTENT;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 import jakarta.validation.ValidationException;
+import javax.ws.rs.core.UriBuilder;
 
 import io.vertx.core.Future;
 import io.vertx.core.http.HttpMethod;
-import io.vertx.core.json.JsonObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -25,6 +27,8 @@ import org.folio.rest.jaxrs.model.RequestPreference;
 import org.folio.rest.jaxrs.model.User;
 import org.folio.rest.validator.UserRequestManagerValidator;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.JsonBufferWriter;
+import org.folio.util.JsonObjectUtil;
 
 public class UserPreferenceService {
 
@@ -36,15 +40,40 @@ public class UserPreferenceService {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, query)
         .send()
         .expecting(SC_OK)
-        .map(res -> res.bodyAsJsonObject().getJsonArray(REQUEST_PREFERENCES_ARRAY_KEY)
-            .getJsonObject(0).mapTo(RequestPreference.class))
+        .map(res -> JsonObjectUtil.extractList(res.body(), REQUEST_PREFERENCES_ARRAY_KEY, RequestPreference.class)
+            .get(0))
         .otherwiseEmpty(); // if not OK, return, success null.
   }
 
+  /**
+   * Get the request preferences of several users with one {@code userId==(a or b)} query.
+   *
+   * @return the request preferences by user id
+   */
+  public Future<Map<String, RequestPreference>> getByUserIds(Map<String, String> okapiHeaders,
+      Collection<String> userIds) {
+
+    String query = UriBuilder.fromPath(REQUEST_PREFERENCES_ENDPOINT)
+        .queryParam("query", "userId==(" + String.join(" or ", userIds) + ")")
+        .queryParam("limit", userIds.size())
+        .build().toString();
+    return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, query)
+        .send()
+        .expecting(SC_OK)
+        .map(res -> {
+          Map<String, RequestPreference> preferences = new HashMap<>();
+          for (RequestPreference preference
+              : JsonObjectUtil.extractList(res.body(), REQUEST_PREFERENCES_ARRAY_KEY, RequestPreference.class)) {
+            preferences.putIfAbsent(preference.getUserId(), preference);
+          }
+          return preferences;
+        });
+  }
+
   public Future<Void> update(Map<String, String> okapiHeaders, RequestPreference entity) {
     String query = String.format(REQUEST_PREFERENCES_SEARCH_QUERY_ENDPOINT, "/" + entity.getId());
-    return HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, query)
-        .sendJsonObject(JsonObject.mapFrom(entity))
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.PUT, okapiHeaders, query);
+    return JsonBufferWriter.sendJson(request, entity)
         .expecting(SC_NO_CONTENT)
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_UPDATE_USER_PREFERENCE))
         .mapEmpty();
@@ -60,8 +89,8 @@ public class UserPreferenceService {
   }
 
   public Future<RequestPreference> create(Map<String, String> okapiHeaders, RequestPreference entity) {
-    return HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, REQUEST_PREFERENCES_ENDPOINT)
-        .sendJsonObject(JsonObject.mapFrom(entity))
+    var request = HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, REQUEST_PREFERENCES_ENDPOINT);
+    return JsonBufferWriter.sendJson(request, entity)
         .expecting(SC_CREATED)
         .map(res -> res.bodyAsJsonObject().mapTo(RequestPreference.class))
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_CREATE_USER_PREFERENCE));
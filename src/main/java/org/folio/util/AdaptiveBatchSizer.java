@@ -0,0 +1,95 @@
+package org.folio.util;
+
+/**
+ * Adjusts a batch size to the observed round trip latency and error rate of the
+ * downstream calls.
+ *
+ * <p>The latency of a batch grows with its size, so each round trip is normalized to a
+ * latency per item. The smoothed latency per item times the current size is the expected
+ * latency of the next batch. This also keeps batches of an older size that complete
+ * after the size has changed from being judged against the new size.
+ *
+ * <p>The size grows additively while the expected latency stays below half of the
+ * target latency and shrinks multiplicatively when the expected latency exceeds the
+ * target or a call fails. The size always stays within {@code [min, max]}.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ */
+public class AdaptiveBatchSizer {
+
+  /** weight of the latest sample in the smoothed latency */
+  private static final double SMOOTHING = 0.3;
+
+  private final int min;
+  private final int max;
+  private final long targetLatencyMillis;
+  private final int step;
+
+  private int size;
+  private double smoothedItemLatencyMillis = -1;
+  private long samples;
+  private long errors;
+
+  /**
+   * @param min                 minimum batch size
+   * @param max                 maximum batch size
+   * @param initial             batch size to start with
+   * @param targetLatencyMillis the round trip latency the batch size should not exceed
+   */
+  public AdaptiveBatchSizer(int min, int max, int initial, long targetLatencyMillis) {
+    if (min < 1 || max < min) {
+      throw new IllegalArgumentException("Invalid batch size bounds: [" + min + ", " + max + "]");
+    }
+    this.min = min;
+    this.max = max;
+    this.size = Math.clamp(initial, min, max);
+    this.targetLatencyMillis = Math.max(1, targetLatencyMillis);
+    this.step = Math.max(1, min / 2);
+  }
+
+  /**
+   * A sizer that always returns the same batch size.
+   */
+  public static AdaptiveBatchSizer fixed(int size) {
+    return new AdaptiveBatchSizer(size, size, size, Long.MAX_VALUE);
+  }
+
+  public int getBatchSize() {
+    return size;
+  }
+
+  /**
+   * Record the outcome of a downstream round trip of a batch.
+   *
+   * @param latencyMillis the round trip time
+   * @param batchSize     the number of items of the batch
+   * @param failed        whether the round trip failed
+   */
+  public void record(long latencyMillis, int batchSize, boolean failed) {
+    samples++;
+    if (failed) {
+      errors++;
+      size = Math.max(min, size / 2);
+      return;
+    }
+    double itemLatencyMillis = (double) latencyMillis / Math.max(1, batchSize);
+    smoothedItemLatencyMillis = smoothedItemLatencyMillis < 0 ? itemLatencyMillis
+        : SMOOTHING * itemLatencyMillis + (1 - SMOOTHING) * smoothedItemLatencyMillis;
+    double expectedLatencyMillis = smoothedItemLatencyMillis * size;
+    if (expectedLatencyMillis > targetLatencyMillis) {
+      size = Math.max(min, size * 3 / 4);
+    } else if (expectedLatencyMillis < targetLatencyMillis / 2.0) {
+      size = Math.min(max, size + step);
+    }
+  }
+
+  public double getErrorRate() {
+    return samples == 0 ? 0 : (double) errors / samples;
+  }
+
+  @Override
+  public String toString() {
+    return "batchSize=" + size + ", expectedLatencyMillis=" + Math.round(smoothedItemLatencyMillis * size)
+        + ", samples=" + samples + ", errorRate=" + getErrorRate();
+  }
+}
@@ -0,0 +1,241 @@
+package org.folio.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Groups items into batches and runs the batches through an asynchronous processor
+ * with at most {@code maxInFlight} batches and {@code maxItemsInFlight} items running
+ * at the same time. A new batch is started as soon as a running batch completes, so
+ * the pipeline stays full without starting everything at once.
+ *
+ * <p>The batch size is queried whenever a batch is started and may change while the
+ * pipeline is running.
+ *
+ * <p>Items can be added until {@link #end()} is called. The results are returned in
+ * the order the batches were started. The first failing batch stops dispatching of
+ * further batches and items added later are discarded; the result fails after the
+ * running batches have completed.
+ *
+ * <p>A paused pipeline starts no new batches, the running batches are completed.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ *
+ * @param <T> the item type
+ * @param <R> the result type of a batch
+ */
+public class BatchPipeline<T, R> {
+
+  private final int maxInFlight;
+  private final int maxItemsInFlight;
+  private final IntSupplier batchSize;
+  private final Function<List<T>, Future<R>> processor;
+
+  private final Deque<T> pending = new ArrayDeque<>();
+  private final List<R> results = new ArrayList<>();
+  private final Promise<List<R>> promise = Promise.promise();
+  private Consumer<List<T>> batchCompletionHandler = batch -> { };
+
+  private int inFlight;
+  private int itemsInFlight;
+  private int peakInFlight;
+  private int batchCount;
+  private boolean ended;
+  private boolean dispatching;
+  private boolean paused;
+  private Throwable failure;
+
+  /**
+   * @param maxInFlight maximum number of batches processed at the same time
+   * @param batchSize   maximum number of items in a batch
+   * @param processor   the asynchronous processor of a batch
+   */
+  public BatchPipeline(int maxInFlight, int batchSize, Function<List<T>, Future<R>> processor) {
+    this(maxInFlight, Integer.MAX_VALUE, () -> batchSize, processor);
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive");
+    }
+  }
+
+  /**
+   * @param maxInFlight      maximum number of batches processed at the same time
+   * @param maxItemsInFlight maximum number of items in the batches processed at the same time;
+   *                         a single batch is always allowed to run
+   * @param batchSize        supplies the maximum number of items of the next batch
+   * @param processor        the asynchronous processor of a batch
+   */
+  public BatchPipeline(int maxInFlight, int maxItemsInFlight, IntSupplier batchSize,
+      Function<List<T>, Future<R>> processor) {
+    if (maxInFlight < 1 || maxItemsInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight and maxItemsInFlight must be positive");
+    }
+    this.maxInFlight = maxInFlight;
+    this.maxItemsInFlight = maxItemsInFlight;
+    this.batchSize = batchSize;
+    this.processor = processor;
+  }
+
+  public void add(T item) {
+    if (failure != null) {
+      return;
+    }
+    pending.add(item);
+    dispatch();
+  }
+
+  public void addAll(Collection<T> items) {
+    if (failure != null) {
+      return;
+    }
+    pending.addAll(items);
+    dispatch();
+  }
+
+  /**
+   * Set a handler that is called with the items of each completed batch before the
+   * next batch is started.
+   */
+  public BatchPipeline<T, R> batchCompletionHandler(Consumer<List<T>> handler) {
+    this.batchCompletionHandler = handler;
+    return this;
+  }
+
+  /**
+   * Signal that no more items will be added.
+   *
+   * @return the results of all batches in the order the batches were started
+   */
+  public Future<List<R>> end() {
+    ended = true;
+    dispatch();
+    return result();
+  }
+
+  /**
+   * Stop the pipeline: discard the items that have not been started and fail the result
+   * with the cause once the running batches have completed.
+   */
+  public void fail(Throwable cause) {
+    if (failure == null) {
+      failure = cause;
+    }
+    pending.clear();
+    ended = true;
+    dispatch();
+  }
+
+  /**
+   * Stop starting new batches until {@link #resume()} is called.
+   */
+  public void pause() {
+    paused = true;
+  }
+
+  public void resume() {
+    if (paused) {
+      paused = false;
+      dispatch();
+    }
+  }
+
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * @return the results of all batches in the order the batches were started,
+   *     completes after {@link #end()} has been called and all batches have completed
+   */
+  public Future<List<R>> result() {
+    return promise.future();
+  }
+
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  public int getPeakInFlight() {
+    return peakInFlight;
+  }
+
+  public int getBatchCount() {
+    return batchCount;
+  }
+
+  private void dispatch() {
+    if (dispatching) {
+      // a batch completed synchronously while starting batches, the loop below picks up the free slot
+      return;
+    }
+    dispatching = true;
+    try {
+      int size = nextBatchSize();
+      while (failure == null && !paused && inFlight < maxInFlight
+          && (inFlight == 0 || itemsInFlight + size <= maxItemsInFlight)
+          && (pending.size() >= size || (ended && !pending.isEmpty()))) {
+        List<T> batch = new ArrayList<>(Math.min(size, pending.size()));
+        while (batch.size() < size && !pending.isEmpty()) {
+          batch.add(pending.poll());
+        }
+        startBatch(batch);
+        size = nextBatchSize();
+      }
+    } finally {
+      dispatching = false;
+    }
+    if (ended && inFlight == 0 && (pending.isEmpty() || failure != null)) {
+      complete();
+    }
+  }
+
+  private int nextBatchSize() {
+    return Math.max(1, batchSize.getAsInt());
+  }
+
+  private void startBatch(List<T> batch) {
+    int index = batchCount++;
+    results.add(null);
+    inFlight++;
+    itemsInFlight += batch.size();
+    peakInFlight = Math.max(peakInFlight, inFlight);
+    Future<R> future;
+    try {
+      future = processor.apply(batch);
+    } catch (RuntimeException e) {
+      future = Future.failedFuture(e);
+    }
+    future.onComplete(ar -> {
+      inFlight--;
+      itemsInFlight -= batch.size();
+      if (ar.succeeded()) {
+        results.set(index, ar.result());
+      } else if (failure == null) {
+        failure = ar.cause();
+        pending.clear();
+      }
+      batchCompletionHandler.accept(batch);
+      dispatch();
+    });
+  }
+
+  private void complete() {
+    if (failure != null) {
+      promise.tryFail(failure);
+    } else {
+      promise.tryComplete(results);
+    }
+  }
+}
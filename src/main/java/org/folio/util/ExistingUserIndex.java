@@ -0,0 +1,190 @@
+package org.folio.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * Compact index of existing users by externalSystemId that only keeps the user id, the
+ * username and the active flag.
+ *
+ * <p>The externalSystemIds and the usernames are stored as UTF-8 bytes in two arrays, the
+ * ids as two longs, so an entry takes a few tens of bytes instead of a full user object.
+ * The ids must be UUIDs.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ */
+public class ExistingUserIndex {
+
+  /**
+   * Consumer of an active user of the index.
+   */
+  @FunctionalInterface
+  public interface ActiveUserConsumer {
+    /**
+     * @param username the username, null if the user has none
+     */
+    void accept(String externalSystemId, String id, String username);
+  }
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private byte[] keys = new byte[INITIAL_CAPACITY * 16];
+  private int keysLength;
+  /** start of the key of entry i in keys, keyOffsets[i + 1] is its end */
+  private int[] keyOffsets = new int[INITIAL_CAPACITY + 1];
+  private long[] idMostSigBits = new long[INITIAL_CAPACITY];
+  private long[] idLeastSigBits = new long[INITIAL_CAPACITY];
+  private byte[] usernames = new byte[INITIAL_CAPACITY * 16];
+  private int usernamesLength;
+  /** start of the username of entry i in usernames, -1 if the user has no username */
+  private int[] usernameOffsets = new int[INITIAL_CAPACITY];
+  private int[] usernameLengths = new int[INITIAL_CAPACITY];
+  private final BitSet active = new BitSet();
+  private final BitSet removed = new BitSet();
+  /** open addressing hash table, entry index + 1 or 0 if the slot is empty */
+  private int[] table = new int[INITIAL_CAPACITY * 2];
+  private int entries;
+  private int size;
+
+  /**
+   * Add a user, replacing a user with the same externalSystemId.
+   *
+   * @param username the username, null if the user has none
+   */
+  public void put(String externalSystemId, String id, String username, boolean isActive) {
+    UUID uuid = UUID.fromString(id);
+    byte[] key = externalSystemId.getBytes(StandardCharsets.UTF_8);
+    int slot = find(key);
+    int entry = table[slot] - 1;
+    if (entry < 0) {
+      entry = append(key);
+      table[slot] = entry + 1;
+      size++;
+      if (entries * 2 > table.length) {
+        rehash(table.length * 2);
+      }
+    } else if (removed.get(entry)) {
+      removed.clear(entry);
+      size++;
+    }
+    idMostSigBits[entry] = uuid.getMostSignificantBits();
+    idLeastSigBits[entry] = uuid.getLeastSignificantBits();
+    setUsername(entry, username);
+    active.set(entry, isActive);
+  }
+
+  /**
+   * Remove the user with the externalSystemId.
+   *
+   * @return whether the user was in the index
+   */
+  public boolean remove(String externalSystemId) {
+    int entry = table[find(externalSystemId.getBytes(StandardCharsets.UTF_8))] - 1;
+    if (entry < 0 || removed.get(entry)) {
+      return false;
+    }
+    removed.set(entry);
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Call the consumer with the externalSystemId, the id and the username of each active user
+   * in the index.
+   */
+  public void forEachActive(ActiveUserConsumer consumer) {
+    for (int entry = active.nextSetBit(0); entry >= 0; entry = active.nextSetBit(entry + 1)) {
+      if (!removed.get(entry)) {
+        String externalSystemId = new String(keys, keyOffsets[entry], keyOffsets[entry + 1] - keyOffsets[entry],
+            StandardCharsets.UTF_8);
+        String username = usernameOffsets[entry] < 0 ? null
+            : new String(usernames, usernameOffsets[entry], usernameLengths[entry], StandardCharsets.UTF_8);
+        consumer.accept(externalSystemId, new UUID(idMostSigBits[entry], idLeastSigBits[entry]).toString(),
+            username);
+      }
+    }
+  }
+
+  /**
+   * Append the username of the entry, the username a replaced user had is not reclaimed.
+   */
+  private void setUsername(int entry, String username) {
+    if (username == null) {
+      usernameOffsets[entry] = -1;
+      return;
+    }
+    byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+    if (usernamesLength + bytes.length > usernames.length) {
+      usernames = Arrays.copyOf(usernames, Math.max(usernames.length * 2, usernamesLength + bytes.length));
+    }
+    System.arraycopy(bytes, 0, usernames, usernamesLength, bytes.length);
+    usernameOffsets[entry] = usernamesLength;
+    usernameLengths[entry] = bytes.length;
+    usernamesLength += bytes.length;
+  }
+
+  private int append(byte[] key) {
+    if (entries == idMostSigBits.length) {
+      int capacity = entries * 2;
+      idMostSigBits = Arrays.copyOf(idMostSigBits, capacity);
+      idLeastSigBits = Arrays.copyOf(idLeastSigBits, capacity);
+      usernameOffsets = Arrays.copyOf(usernameOffsets, capacity);
+      usernameLengths = Arrays.copyOf(usernameLengths, capacity);
+      keyOffsets = Arrays.copyOf(keyOffsets, capacity + 1);
+    }
+    if (keysLength + key.length > keys.length) {
+      keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + key.length));
+    }
+    System.arraycopy(key, 0, keys, keysLength, key.length);
+    keysLength += key.length;
+    keyOffsets[entries + 1] = keysLength;
+    return entries++;
+  }
+
+  /**
+   * @return the slot of the key, or the empty slot where it belongs
+   */
+  private int find(byte[] key) {
+    int mask = table.length - 1;
+    int slot = hash(key, 0, key.length) & mask;
+    while (table[slot] != 0 && !keyEquals(table[slot] - 1, key)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean keyEquals(int entry, byte[] key) {
+    int from = keyOffsets[entry];
+    return Arrays.equals(keys, from, keyOffsets[entry + 1], key, 0, key.length);
+  }
+
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    int mask = capacity - 1;
+    for (int entry = 0; entry < entries; entry++) {
+      int slot = hash(keys, keyOffsets[entry], keyOffsets[entry + 1]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = entry + 1;
+    }
+  }
+
+  private static int hash(byte[] bytes, int from, int to) {
+    int h = 1;
+    for (int i = from; i < to; i++) {
+      h = 31 * h + bytes[i];
+    }
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,288 @@
+package org.folio.util;
+
+import java.util.Locale;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Tuning options of the user import.
+ *
+ * <p>Each option is read from the Java system property or, if not set, from the
+ * environment variable with the same name.
+ */
+public final class ImportConfig {
+
+  private static final Logger LOGGER = LogManager.getLogger(ImportConfig.class);
+
+  public static final String MAX_PARTITIONS_IN_FLIGHT = "USER_IMPORT_MAX_PARTITIONS_IN_FLIGHT";
+  public static final String MAX_USERS_IN_FLIGHT = "USER_IMPORT_MAX_USERS_IN_FLIGHT";
+  public static final String ADAPTIVE_PARTITION_SIZE = "USER_IMPORT_ADAPTIVE_PARTITION_SIZE";
+  public static final String MIN_PARTITION_SIZE = "USER_IMPORT_MIN_PARTITION_SIZE";
+  public static final String MAX_PARTITION_SIZE = "USER_IMPORT_MAX_PARTITION_SIZE";
+  public static final String TARGET_LATENCY_MS = "USER_IMPORT_TARGET_LATENCY_MS";
+  public static final String STREAM_BUFFER_SIZE = "USER_IMPORT_STREAM_BUFFER_SIZE";
+  public static final String JOB_RETENTION_MINUTES = "USER_IMPORT_JOB_RETENTION_MINUTES";
+  public static final String BATCH_USERS_ENDPOINT = "USER_IMPORT_BATCH_USERS_ENDPOINT";
+  public static final String BATCH_USERS_RETRY_SECONDS = "USER_IMPORT_BATCH_USERS_RETRY_SECONDS";
+  public static final String CONCURRENT_PERMISSION_USERS = "USER_IMPORT_CONCURRENT_PERMISSION_USERS";
+  public static final String USER_SCAN_PAGE_SIZE = "USER_IMPORT_USER_SCAN_PAGE_SIZE";
+  public static final String USER_SCAN_PAGES_IN_FLIGHT = "USER_IMPORT_USER_SCAN_PAGES_IN_FLIGHT";
+  public static final String KEYSET_USER_SCAN = "USER_IMPORT_KEYSET_USER_SCAN";
+  public static final String COMPACT_USER_INDEX = "USER_IMPORT_COMPACT_USER_INDEX";
+  public static final String DEACTIVATION_CONCURRENCY = "USER_IMPORT_DEACTIVATION_CONCURRENCY";
+  public static final String DEACTIVATION_RATE = "USER_IMPORT_DEACTIVATION_RATE";
+  public static final String REFERENCE_DATA_CACHE_TTL_SECONDS = "USER_IMPORT_REFERENCE_DATA_CACHE_TTL_SECONDS";
+  public static final String REFERENCE_DATA_CACHE_MAX_ENTRIES = "USER_IMPORT_REFERENCE_DATA_CACHE_MAX_ENTRIES";
+  public static final String MODULE_ID_CACHE_TTL_SECONDS = "USER_IMPORT_MODULE_ID_CACHE_TTL_SECONDS";
+  public static final String LAZY_USER_DECODING = "USER_IMPORT_LAZY_USER_DECODING";
+  public static final String SKIP_UNCHANGED_USERS = "USER_IMPORT_SKIP_UNCHANGED_USERS";
+  public static final String FINGERPRINT_DIRECTORY = "USER_IMPORT_FINGERPRINT_DIRECTORY";
+  public static final String USER_ID_STRATEGY = "USER_IMPORT_USER_ID_STRATEGY";
+  public static final String USER_ID_CACHE_MAX_ENTRIES = "USER_IMPORT_USER_ID_CACHE_MAX_ENTRIES";
+
+  public static final int PARTITION_SIZE = 10;
+
+  private static final int DEFAULT_MAX_PARTITIONS_IN_FLIGHT = 10;
+  private static final int DEFAULT_MIN_PARTITION_SIZE = 5;
+  private static final int DEFAULT_MAX_PARTITION_SIZE = 50;
+  private static final int DEFAULT_TARGET_LATENCY_MS = 2000;
+  private static final int DEFAULT_STREAM_BUFFER_SIZE = 1000;
+  private static final int DEFAULT_JOB_RETENTION_MINUTES = 60;
+  private static final int DEFAULT_BATCH_USERS_RETRY_SECONDS = 300;
+  private static final int DEFAULT_USER_SCAN_PAGE_SIZE = 1000;
+  private static final int DEFAULT_USER_SCAN_PAGES_IN_FLIGHT = 10;
+  private static final int DEFAULT_DEACTIVATION_CONCURRENCY = 10;
+  private static final int DEFAULT_REFERENCE_DATA_CACHE_MAX_ENTRIES = 300;
+
+  private ImportConfig() {
+  }
+
+  /**
+   * The maximum number of partitions processed at the same time by one import.
+   */
+  public static int maxPartitionsInFlight() {
+    return Math.max(1, getInt(MAX_PARTITIONS_IN_FLIGHT, DEFAULT_MAX_PARTITIONS_IN_FLIGHT));
+  }
+
+  /**
+   * The maximum number of users in the partitions processed at the same time by one import.
+   */
+  public static int maxUsersInFlight() {
+    return Math.max(1, getInt(MAX_USERS_IN_FLIGHT, Integer.MAX_VALUE));
+  }
+
+  /**
+   * A new partition sizer for an import. The partition size is the number of users
+   * looked up by one user search and written together.
+   *
+   * <p>If {@value #ADAPTIVE_PARTITION_SIZE} is true the size adapts to the observed
+   * latency within [{@value #MIN_PARTITION_SIZE}, {@value #MAX_PARTITION_SIZE}],
+   * otherwise it is fixed at {@link #PARTITION_SIZE}.
+   */
+  public static AdaptiveBatchSizer partitionSizer() {
+    if (!getBoolean(ADAPTIVE_PARTITION_SIZE, false)) {
+      return AdaptiveBatchSizer.fixed(PARTITION_SIZE);
+    }
+    int min = Math.max(1, getInt(MIN_PARTITION_SIZE, DEFAULT_MIN_PARTITION_SIZE));
+    int max = Math.max(min, getInt(MAX_PARTITION_SIZE, DEFAULT_MAX_PARTITION_SIZE));
+    return new AdaptiveBatchSizer(min, max, PARTITION_SIZE, getInt(TARGET_LATENCY_MS, DEFAULT_TARGET_LATENCY_MS));
+  }
+
+  /**
+   * The number of parsed users of a streamed import that may wait for a partition
+   * before reading of the request body is paused.
+   */
+  public static int streamBufferSize() {
+    return Math.max(1, getInt(STREAM_BUFFER_SIZE, DEFAULT_STREAM_BUFFER_SIZE));
+  }
+
+  /**
+   * The number of minutes a finished import job can be polled.
+   */
+  public static int jobRetentionMinutes() {
+    return Math.max(0, getInt(JOB_RETENTION_MINUTES, DEFAULT_JOB_RETENTION_MINUTES));
+  }
+
+  /**
+   * The path of the batch users endpoint, null if users are written one by one.
+   */
+  public static String batchUsersEndpoint() {
+    return StringUtils.trimToNull(get(BATCH_USERS_ENDPOINT));
+  }
+
+  /**
+   * The number of seconds the batch users endpoint is not used after it responded that it
+   * is not available.
+   */
+  public static long batchUsersRetrySeconds() {
+    return Math.max(0, getInt(BATCH_USERS_RETRY_SECONDS, DEFAULT_BATCH_USERS_RETRY_SECONDS));
+  }
+
+  /**
+   * Whether the permission user and the user of a new user are created at the same time
+   * instead of one after the other.
+   */
+  public static boolean concurrentPermissionUsers() {
+    return getBoolean(CONCURRENT_PERMISSION_USERS, false);
+  }
+
+  /**
+   * The number of users read by one request when all existing users are listed for
+   * the deactivation of missing users.
+   */
+  public static int userScanPageSize() {
+    return Math.max(1, getInt(USER_SCAN_PAGE_SIZE, DEFAULT_USER_SCAN_PAGE_SIZE));
+  }
+
+  /**
+   * The maximum number of pages read at the same time when the existing users are
+   * listed by offset.
+   */
+  public static int userScanPagesInFlight() {
+    return Math.max(1, getInt(USER_SCAN_PAGES_IN_FLIGHT, DEFAULT_USER_SCAN_PAGES_IN_FLIGHT));
+  }
+
+  /**
+   * Whether the existing users are listed with keyset pagination on externalSystemId
+   * instead of offsets. Off by default: keyset pages are read one after the other, and
+   * the scan relies on mod-users comparing externalSystemId in the order it sorts it.
+   */
+  public static boolean keysetUserScan() {
+    return getBoolean(KEYSET_USER_SCAN, false);
+  }
+
+  /**
+   * Whether only the id and the active flag of the existing users are kept for the
+   * deactivation of missing users.
+   */
+  public static boolean compactUserIndex() {
+    return getBoolean(COMPACT_USER_INDEX, false);
+  }
+
+  /**
+   * The maximum number of users deactivated at the same time.
+   */
+  public static int deactivationConcurrency() {
+    return Math.max(1, getInt(DEACTIVATION_CONCURRENCY, DEFAULT_DEACTIVATION_CONCURRENCY));
+  }
+
+  /**
+   * The maximum number of deactivation requests started per second, 0 for no limit.
+   */
+  public static double deactivationRate() {
+    return Math.max(0, getDouble(DEACTIVATION_RATE, 0));
+  }
+
+  /**
+   * The number of seconds address types, patron groups and service points are cached,
+   * 0 if they are not cached.
+   */
+  public static long referenceDataCacheTtlSeconds() {
+    return Math.max(0, getInt(REFERENCE_DATA_CACHE_TTL_SECONDS, 0));
+  }
+
+  /**
+   * The maximum number of cached reference data maps of all tenants.
+   */
+  public static int referenceDataCacheMaxEntries() {
+    return Math.max(1, getInt(REFERENCE_DATA_CACHE_MAX_ENTRIES, DEFAULT_REFERENCE_DATA_CACHE_MAX_ENTRIES));
+  }
+
+  /**
+   * The number of seconds the id of the module providing the custom-fields interface is
+   * cached, 0 if it is looked up for each import.
+   */
+  public static long moduleIdCacheTtlSeconds() {
+    return Math.max(0, getInt(MODULE_ID_CACHE_TTL_SECONDS, 0));
+  }
+
+  /**
+   * Whether an existing user found by a user search is only decoded when its full record
+   * is needed instead of when the search response is read.
+   */
+  public static boolean lazyUserDecoding() {
+    return getBoolean(LAZY_USER_DECODING, false);
+  }
+
+  /**
+   * Whether an existing user is not updated if the update would not change it.
+   */
+  public static boolean skipUnchangedUsers() {
+    return getBoolean(SKIP_UNCHANGED_USERS, false);
+  }
+
+  /**
+   * The directory of the files with the fingerprints of the imported users, null if users
+   * are not fingerprinted.
+   */
+  public static String fingerprintDirectory() {
+    return StringUtils.trimToNull(get(FINGERPRINT_DIRECTORY));
+  }
+
+  /**
+   * How the id of a new user without id is generated: random, name-based or time-ordered.
+   */
+  public static UserIds.Strategy userIdStrategy() {
+    String value = get(USER_ID_STRATEGY);
+    if (StringUtils.isBlank(value)) {
+      return UserIds.Strategy.RANDOM;
+    }
+    try {
+      return UserIds.Strategy.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    } catch (IllegalArgumentException e) {
+      LOGGER.warn("Ignoring invalid value of {}: {}", USER_ID_STRATEGY, value);
+      return UserIds.Strategy.RANDOM;
+    }
+  }
+
+  /**
+   * The maximum number of cached user ids of all tenants, 0 if user ids are not cached.
+   */
+  public static int userIdCacheMaxEntries() {
+    return Math.max(0, getInt(USER_ID_CACHE_MAX_ENTRIES, 0));
+  }
+
+  public static boolean getBoolean(String name, boolean defaultValue) {
+    String value = get(name);
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    return Boolean.parseBoolean(value.trim());
+  }
+
+  public static int getInt(String name, int defaultValue) {
+    String value = get(name);
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      LOGGER.warn("Ignoring invalid value of {}: {}", name, value);
+      return defaultValue;
+    }
+  }
+
+  public static double getDouble(String name, double defaultValue) {
+    String value = get(name);
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      LOGGER.warn("Ignoring invalid value of {}: {}", name, value);
+      return defaultValue;
+    }
+  }
+
+  private static String get(String name) {
+    String value = System.getProperty(name);
+    if (value == null) {
+      value = System.getenv(name);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,204 @@
+package org.folio.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+/**
+ * Incremental parser of a userdataimportCollection JSON document.
+ *
+ * <p>The document is fed chunk by chunk as it is received. The users are decoded and
+ * passed to the {@link Listener} one by one as soon as they are complete, the users
+ * array is never held in memory. The top level fields that precede the users array
+ * are passed as the header before the first user, or all top level fields if the document
+ * has no users array. The top level fields that follow the users array are reported as
+ * trailing fields.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ */
+public class ImportStreamParser implements UserStreamParser {
+
+  private enum State { START, FIELD, VALUE, USERS_START, USERS, USER, DONE }
+
+  private static final String USERS = "users";
+
+  private final ObjectMapper mapper = DatabindCodec.mapper();
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final Listener listener;
+
+  private State state = State.START;
+  private TokenBuffer header;
+  private boolean headerPublished;
+  private boolean usersParsed;
+  private TokenBuffer value;
+  private int depth;
+
+  public ImportStreamParser(Listener listener) {
+    this.listener = listener;
+    try {
+      this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  public void feed(Buffer chunk) throws IOException {
+    feed(chunk.getBytes());
+  }
+
+  @Override
+  public void feed(byte[] bytes) throws IOException {
+    feeder.feedInput(bytes, 0, bytes.length);
+    parse();
+  }
+
+  @Override
+  public void end() throws IOException {
+    feeder.endOfInput();
+    parse();
+    if (state != State.DONE) {
+      throw new JsonParseException(parser, "Unexpected end of input");
+    }
+  }
+
+  private void parse() throws IOException {
+    JsonToken token = parser.nextToken();
+    while (token != null && token != JsonToken.NOT_AVAILABLE) {
+      handle(token);
+      token = parser.nextToken();
+    }
+  }
+
+  private void handle(JsonToken token) throws IOException {
+    switch (state) {
+      case START:
+        expect(token == JsonToken.START_OBJECT, "Expected a JSON object");
+        header = new TokenBuffer(mapper, false);
+        header.writeStartObject();
+        state = State.FIELD;
+        break;
+      case FIELD:
+        handleField(token);
+        break;
+      case VALUE:
+        if (copy(token)) {
+          state = State.FIELD;
+        }
+        break;
+      case USERS_START:
+        if (token == JsonToken.VALUE_NULL) {
+          usersParsed = true;
+          state = State.FIELD;
+        } else {
+          expect(token == JsonToken.START_ARRAY, "Expected users to be an array");
+          state = State.USERS;
+        }
+        break;
+      case USERS:
+        if (token == JsonToken.END_ARRAY) {
+          usersParsed = true;
+          state = State.FIELD;
+        } else {
+          expect(token == JsonToken.START_OBJECT, "Expected users to contain objects");
+          beginValue(new TokenBuffer(mapper, false));
+          copy(token);
+          state = State.USER;
+        }
+        break;
+      case USER:
+        if (copy(token)) {
+          publishUser(value);
+          state = State.USERS;
+        }
+        break;
+      default:
+        throw new JsonParseException(parser, "Unexpected content after the end of the document");
+    }
+  }
+
+  private void handleField(JsonToken token) throws IOException {
+    if (token == JsonToken.END_OBJECT) {
+      publishHeader();
+      state = State.DONE;
+      return;
+    }
+    String name = parser.currentName();
+    if (USERS.equals(name)) {
+      expect(!usersParsed, "Duplicate users array");
+      publishHeader();
+      state = State.USERS_START;
+      return;
+    }
+    if (headerPublished) {
+      listener.trailingField(name);
+      beginValue(null);
+    } else {
+      header.writeFieldName(name);
+      beginValue(header);
+    }
+    state = State.VALUE;
+  }
+
+  private void beginValue(TokenBuffer target) {
+    value = target;
+    depth = 0;
+  }
+
+  /**
+   * Copy the current token to the value being parsed.
+   *
+   * @return true if the value is complete
+   */
+  private boolean copy(JsonToken token) throws IOException {
+    if (value != null) {
+      value.copyCurrentEvent(parser);
+    }
+    if (token.isStructStart()) {
+      depth++;
+    } else if (token.isStructEnd()) {
+      depth--;
+    }
+    return depth == 0;
+  }
+
+  private void publishHeader() throws IOException {
+    if (headerPublished) {
+      return;
+    }
+    headerPublished = true;
+    header.writeEndObject();
+    UserdataimportCollection collection;
+    try (JsonParser headerParser = header.asParser()) {
+      collection = mapper.readValue(headerParser, UserdataimportCollection.class);
+    }
+    header = null;
+    listener.header(collection);
+  }
+
+  private void publishUser(TokenBuffer buffer) throws IOException {
+    JsonNode node;
+    try (JsonParser userParser = buffer.asParser()) {
+      node = mapper.readTree(userParser);
+    }
+    UserStreamParser.publishUser(mapper, node, listener);
+  }
+
+  private void expect(boolean condition, String message) throws JsonParseException {
+    if (!condition) {
+      throw new JsonParseException(parser, message);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.folio.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * Serializes POJOs sent to other modules straight into a {@link Buffer} with a cached
+ * {@link ObjectWriter}, without building a {@link io.vertx.core.json.JsonObject} tree.
+ *
+ * <p>The writer omits an empty preferredEmailCommunication of a {@link User} to be
+ * compatible with the Poppy and Quesnelia versions of mod-users.
+ */
+public final class JsonBufferWriter {
+
+  private static final int INITIAL_SIZE = 1024;
+  private static final ObjectMapper MAPPER = createMapper(DatabindCodec.mapper());
+  private static final ObjectWriter WRITER = MAPPER.writer();
+
+  /**
+   * Annotations added to {@link User} when it is sent.
+   */
+  private abstract static class UserMixIn {
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    Object preferredEmailCommunication;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    abstract Object getPreferredEmailCommunication();
+  }
+
+  private static final class BufferOutputStream extends OutputStream {
+    private final Buffer buffer;
+
+    BufferOutputStream(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer.appendByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      buffer.appendBytes(bytes, offset, length);
+    }
+  }
+
+  private JsonBufferWriter() {
+  }
+
+  static ObjectMapper createMapper(ObjectMapper mapper) {
+    return mapper.copy().addMixIn(User.class, UserMixIn.class);
+  }
+
+  /**
+   * The mapper of the writer, to build the JSON tree of a value as it is sent.
+   */
+  static ObjectMapper mapper() {
+    return MAPPER;
+  }
+
+  /**
+   * @throws EncodeException if the value cannot be serialized
+   */
+  public static Buffer toBuffer(Object value) {
+    Buffer buffer = Buffer.buffer(INITIAL_SIZE);
+    try {
+      WRITER.writeValue(new BufferOutputStream(buffer), value);
+    } catch (IOException e) {
+      throw new EncodeException("Failed to encode as JSON: " + e.getMessage(), e);
+    }
+    return buffer;
+  }
+
+  /**
+   * Send the value as JSON body of the request.
+   */
+  public static Future<HttpResponse<Buffer>> sendJson(HttpRequest<Buffer> request, Object value) {
+    Buffer body;
+    try {
+      body = toBuffer(value);
+    } catch (EncodeException e) {
+      return Future.failedFuture(e);
+    }
+    return request
+        .putHeader(HttpHeaders.CONTENT_TYPE.toString(), "application/json")
+        .sendBuffer(body);
+  }
+}
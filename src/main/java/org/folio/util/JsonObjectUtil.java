@@ -1,10 +1,19 @@
 package org.folio.util;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
 
 public class JsonObjectUtil {
 
@@ -19,4 +28,41 @@ public class JsonObjectUtil {
     }
     return resultMap;
   }
+
+  /**
+   * Decode the elements of the array property of a collection response straight from the
+   * response body into objects of the type, without building a JSON tree.
+   *
+   * @param body     the collection response, for example {"departments": [...], "totalRecords": 1}
+   * @param arrayKey the name of the array property, for example "departments"
+   * @throws DecodeException if the body is not a JSON object with the array property or an
+   *     element cannot be decoded into the type
+   */
+  public static <T> List<T> extractList(Buffer body, String arrayKey, Class<T> type) {
+    ObjectReader reader = DatabindCodec.mapper().readerFor(type);
+    try (JsonParser parser = DatabindCodec.mapper().getFactory().createParser(body.getBytes())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new DecodeException("Response is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if (arrayKey.equals(name) && token == JsonToken.START_ARRAY) {
+          return readArray(parser, reader);
+        }
+        parser.skipChildren();
+      }
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode " + arrayKey + ": " + e.getMessage(), e);
+    }
+    throw new DecodeException("Response has no " + arrayKey + " array");
+  }
+
+  private static <T> List<T> readArray(JsonParser parser, ObjectReader reader) throws IOException {
+    List<T> list = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      list.add(reader.readValue(parser));
+    }
+    return list;
+  }
 }
@@ -0,0 +1,135 @@
+package org.folio.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+/**
+ * Incremental parser of a newline delimited JSON (NDJSON) user import request body.
+ *
+ * <p>Each line is one user record. The first line may instead hold the import options,
+ * it is taken as options if all its fields are import options. A first line with any
+ * other field is a user record, even if it lacks {@code username} and
+ * {@code externalSystemId}; it is then reported as an invalid user.
+ * A line that is not valid JSON is reported as an invalid user, the following lines are
+ * parsed as usual.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ */
+public class NdjsonUserStreamParser implements UserStreamParser {
+
+  /** the maximum length of a line in bytes */
+  static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+  private static final String USERS = "users";
+
+  /** the fields of the options line, the users array is ignored */
+  private static final Set<String> OPTIONS = Set.of(USERS, "totalRecords", "deactivateMissingUsers",
+      "updateOnlyPresentFields", "importMode", "sourceType", "included");
+
+  private final ObjectMapper mapper = DatabindCodec.mapper();
+  private final Listener listener;
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  private int lineNumber;
+  private boolean headerPublished;
+
+  public NdjsonUserStreamParser(Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void feed(byte[] chunk) throws IOException {
+    int start = 0;
+    for (int i = 0; i < chunk.length; i++) {
+      if (chunk[i] == '\n') {
+        append(chunk, start, i - start);
+        parseLine();
+        start = i + 1;
+      }
+    }
+    append(chunk, start, chunk.length - start);
+  }
+
+  @Override
+  public void end() throws IOException {
+    parseLine();
+    publishHeader(new UserdataimportCollection());
+  }
+
+  private void append(byte[] chunk, int offset, int length) throws IOException {
+    if (line.size() + length > MAX_LINE_LENGTH) {
+      throw new IOException("Line " + (lineNumber + 1) + " exceeds " + MAX_LINE_LENGTH + " bytes");
+    }
+    line.write(chunk, offset, length);
+  }
+
+  private void parseLine() throws IOException {
+    lineNumber++;
+    byte[] bytes = line.toByteArray();
+    line.reset();
+    if (isBlank(bytes)) {
+      return;
+    }
+    JsonNode node;
+    try {
+      node = mapper.readTree(bytes);
+    } catch (JsonProcessingException e) {
+      publishHeader(new UserdataimportCollection());
+      listener.invalidUser(null, null, "Line " + lineNumber + ": " + e.getOriginalMessage());
+      return;
+    }
+    if (!headerPublished && isHeader(node)) {
+      ((ObjectNode) node).remove(USERS);
+      try {
+        publishHeader(mapper.treeToValue(node, UserdataimportCollection.class));
+      } catch (IOException e) {
+        throw new IOException("Line " + lineNumber + ": invalid import options: " + e.getMessage(), e);
+      }
+      return;
+    }
+    publishHeader(new UserdataimportCollection());
+    if (!node.isObject()) {
+      listener.invalidUser(null, null, "Line " + lineNumber + ": expected a JSON object");
+      return;
+    }
+    UserStreamParser.publishUser(mapper, node, listener);
+  }
+
+  private void publishHeader(UserdataimportCollection header) {
+    if (!headerPublished) {
+      headerPublished = true;
+      listener.header(header);
+    }
+  }
+
+  private static boolean isHeader(JsonNode node) {
+    if (!node.isObject()) {
+      return false;
+    }
+    var fieldNames = node.fieldNames();
+    while (fieldNames.hasNext()) {
+      if (!OPTIONS.contains(fieldNames.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isBlank(byte[] bytes) {
+    for (byte b : bytes) {
+      if (b != ' ' && b != '\t' && b != '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -4,6 +4,8 @@ import static org.folio.okapi.common.ChattyHttpResponseExpectation.SC_OK;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 import io.vertx.core.Future;
@@ -15,12 +17,21 @@ import org.folio.rest.tools.utils.TenantTool;
 
 public final class OkapiUtil {
 
+  private static final Map<String, CachedModuleId> MODULE_IDS = new ConcurrentHashMap<>();
+
+  private record CachedModuleId(String moduleId, long expiresAt) {
+  }
+
   private OkapiUtil() {
   }
 
   /**
    * Set the module id header for the interface.
    *
+   * <p>The module id is cached per tenant and interface for
+   * {@link ImportConfig#moduleIdCacheTtlSeconds()} seconds, use {@link #invalidateModuleId}
+   * if the module id turns out to be stale.
+   *
    * <p>See <a href="https://github.com/folio-org/okapi/blob/master/doc/guide.md#multiple-interfaces">
    * multiple interfaces</a> documentation.
    *
@@ -32,6 +43,34 @@ public final class OkapiUtil {
   public static Future<Void> setModuleIdForMultipleInterface(
       String interfaceName, String moduleName, Map<String, String> okapiHeaders) {
 
+    long ttlSeconds = ImportConfig.moduleIdCacheTtlSeconds();
+    if (ttlSeconds <= 0) {
+      return lookupModuleId(interfaceName, moduleName, okapiHeaders);
+    }
+    String key = cacheKey(interfaceName, moduleName, okapiHeaders);
+    CachedModuleId cached = MODULE_IDS.get(key);
+    if (cached != null && cached.expiresAt() - System.nanoTime() > 0) {
+      okapiHeaders.put(XOkapiHeaders.MODULE_ID, cached.moduleId());
+      return Future.succeededFuture();
+    }
+    return lookupModuleId(interfaceName, moduleName, okapiHeaders)
+        .onSuccess(x -> MODULE_IDS.put(key, new CachedModuleId(okapiHeaders.get(XOkapiHeaders.MODULE_ID),
+            System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds))));
+  }
+
+  /**
+   * Remove the cached module id so that the next {@link #setModuleIdForMultipleInterface}
+   * looks it up again.
+   *
+   * @return whether a module id was cached
+   */
+  public static boolean invalidateModuleId(String interfaceName, String moduleName, Map<String, String> okapiHeaders) {
+    return MODULE_IDS.remove(cacheKey(interfaceName, moduleName, okapiHeaders)) != null;
+  }
+
+  private static Future<Void> lookupModuleId(
+      String interfaceName, String moduleName, Map<String, String> okapiHeaders) {
+
     String requestUri = "/_/proxy/tenants/%s/modules?provide=%s"
         .formatted(TenantTool.tenantId(okapiHeaders), PercentCodec.encode(interfaceName));
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, requestUri)
@@ -52,6 +91,11 @@ public final class OkapiUtil {
             "Failed to get module id for " + moduleName + " module providing interface " + interfaceName));
   }
 
+  private static String cacheKey(String interfaceName, String moduleName, Map<String, String> okapiHeaders) {
+    return okapiHeaders.get(XOkapiHeaders.URL) + " " + TenantTool.tenantId(okapiHeaders)
+        + " " + interfaceName + " " + moduleName;
+  }
+
   private static List<String> extractModuleIds(JsonArray jsonArray, String moduleName) {
     return IntStream.range(0, jsonArray.size())
         .mapToObj(jsonArray::getJsonObject)
@@ -0,0 +1,120 @@
+package org.folio.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.tools.utils.TenantTool;
+
+/**
+ * Cache of reference data maps like the address types, patron groups and service points
+ * of a tenant, shared by all imports of the tenant.
+ *
+ * <p>An entry expires {@link ImportConfig#referenceDataCacheTtlSeconds()} seconds after it
+ * has been loaded; a TTL of 0 disables the cache. When there are more than
+ * {@link ImportConfig#referenceDataCacheMaxEntries()} entries the least recently used
+ * entry is evicted. A failed load is not cached.
+ */
+public final class ReferenceDataCache {
+
+  private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+
+  static LongSupplier clock = System::nanoTime;
+
+  private record Entry(Future<Map<String, String>> value, long expiresAt) {
+  }
+
+  private ReferenceDataCache() {
+  }
+
+  public static boolean isEnabled() {
+    return ImportConfig.referenceDataCacheTtlSeconds() > 0;
+  }
+
+  /**
+   * Get the reference data from the cache or load it.
+   *
+   * @param name   the name of the reference data, for example "addressTypes"
+   * @param loader loads the reference data on a cache miss
+   */
+  public static Future<Map<String, String>> get(Map<String, String> okapiHeaders, String name,
+      Supplier<Future<Map<String, String>>> loader) {
+
+    long ttlSeconds = ImportConfig.referenceDataCacheTtlSeconds();
+    if (ttlSeconds <= 0) {
+      return loader.get();
+    }
+    String key = tenantKey(okapiHeaders) + " " + name;
+    long now = clock.getAsLong();
+    Entry entry;
+    synchronized (ENTRIES) {
+      entry = ENTRIES.get(key);
+      if (entry != null && entry.expiresAt() - now > 0 && !entry.value().failed()) {
+        HITS.incrementAndGet();
+        return entry.value();
+      }
+      MISSES.incrementAndGet();
+      entry = new Entry(loader.get(), now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+      ENTRIES.put(key, entry);
+      evict(ImportConfig.referenceDataCacheMaxEntries());
+    }
+    Entry loaded = entry;
+    return loaded.value().onFailure(e -> remove(key, loaded));
+  }
+
+  /**
+   * Remove all reference data of the tenant so that it is loaded again.
+   */
+  public static void invalidate(Map<String, String> okapiHeaders) {
+    String prefix = tenantKey(okapiHeaders) + " ";
+    synchronized (ENTRIES) {
+      ENTRIES.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+  }
+
+  public static void clear() {
+    synchronized (ENTRIES) {
+      ENTRIES.clear();
+    }
+  }
+
+  public static int size() {
+    synchronized (ENTRIES) {
+      return ENTRIES.size();
+    }
+  }
+
+  public static long getHits() {
+    return HITS.get();
+  }
+
+  public static long getMisses() {
+    return MISSES.get();
+  }
+
+  private static void remove(String key, Entry entry) {
+    synchronized (ENTRIES) {
+      ENTRIES.remove(key, entry);
+    }
+  }
+
+  private static void evict(int maxEntries) {
+    var iterator = ENTRIES.entrySet().iterator();
+    while (ENTRIES.size() > maxEntries && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  private static String tenantKey(Map<String, String> okapiHeaders) {
+    return okapiHeaders.get(XOkapiHeaders.URL) + " " + TenantTool.tenantId(okapiHeaders);
+  }
+}
@@ -0,0 +1,77 @@
+package org.folio.util;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/**
+ * Runs an asynchronous task for each item with at most {@code maxInFlight} tasks running
+ * at the same time and, if {@code permitsPerSecond} is positive, at most that many tasks
+ * started per second.
+ *
+ * <p>A failing task does not stop the other tasks, the outcome of each task is left to
+ * the task itself.
+ *
+ * <p>Not thread-safe, use it from a single Vert.x context.
+ *
+ * @param <T> the item type
+ */
+public class ThrottledRunner<T> {
+
+  private final Vertx vertx;
+  private final int maxInFlight;
+  private final long intervalNanos;
+  private final Function<T, Future<?>> task;
+
+  private long nextStart;
+
+  /**
+   * @param vertx            the Vert.x instance to wait with, used if permitsPerSecond is positive
+   * @param maxInFlight      maximum number of tasks running at the same time
+   * @param permitsPerSecond maximum number of tasks started per second, 0 for no limit
+   * @param task             the asynchronous task of an item
+   */
+  public ThrottledRunner(Vertx vertx, int maxInFlight, double permitsPerSecond, Function<T, Future<?>> task) {
+    this.vertx = vertx;
+    this.maxInFlight = maxInFlight;
+    this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    this.task = task;
+  }
+
+  /**
+   * Run the task for all items.
+   *
+   * @return completes when the tasks of all items have completed
+   */
+  public Future<Void> run(Collection<T> items) {
+    BatchPipeline<T, Void> pipeline = new BatchPipeline<>(maxInFlight, 1,
+        batch -> acquire()
+            .compose(x -> task.apply(batch.get(0)).<Void>mapEmpty())
+            .transform(x -> Future.succeededFuture()));
+    pipeline.addAll(items);
+    return pipeline.end().mapEmpty();
+  }
+
+  /**
+   * @return completes when the next task may start
+   */
+  private Future<Void> acquire() {
+    if (intervalNanos == 0) {
+      return Future.succeededFuture();
+    }
+    long now = System.nanoTime();
+    long start = Math.max(now, nextStart);
+    nextStart = start + intervalNanos;
+    long delayMillis = TimeUnit.NANOSECONDS.toMillis(start - now);
+    if (delayMillis < 1) {
+      return Future.succeededFuture();
+    }
+    Promise<Void> promise = Promise.promise();
+    vertx.setTimer(delayMillis, id -> promise.complete());
+    return promise.future();
+  }
+}
@@ -0,0 +1,147 @@
+package org.folio.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.jackson.DatabindCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.rest.jaxrs.model.RequestPreference;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.tools.utils.TenantTool;
+
+/**
+ * Fingerprints of the users imported successfully, by tenant and externalSystemId with the
+ * sourceType prefix. A user whose fingerprint has not changed since its last successful
+ * import is not searched, mapped or written again.
+ *
+ * <p>The fingerprint is a SHA-256 hash of the {@link UserNormalizer normalized} user after
+ * it has been mapped to the mod-users format, so that a changed patron group or address
+ * type id changes it, and of its request preference. The fingerprints of a tenant are
+ * kept in memory and in the file {@code <tenant>.json} of
+ * {@link ImportConfig#fingerprintDirectory()}; the file is read by the first import of the
+ * tenant and written after each import. A missing or unreadable file starts with no
+ * fingerprints.
+ *
+ * <p>The store belongs to one module instance. Instances do not see the fingerprints
+ * recorded by each other, and instances sharing the directory overwrite each other's file.
+ */
+public final class UserFingerprintStore {
+
+  private static final Logger LOGGER = LogManager.getLogger(UserFingerprintStore.class);
+  private static final Map<String, Future<UserFingerprintStore>> STORES = new ConcurrentHashMap<>();
+  private static final TypeReference<Map<String, String>> MAP_TYPE = new TypeReference<>() {
+  };
+
+  private final Path file;
+  private final Map<String, String> fingerprints;
+
+  private UserFingerprintStore(Path file, Map<String, String> fingerprints) {
+    this.file = file;
+    this.fingerprints = new ConcurrentHashMap<>(fingerprints);
+  }
+
+  public static boolean isEnabled() {
+    return ImportConfig.fingerprintDirectory() != null;
+  }
+
+  /**
+   * Get the fingerprints of the tenant, they are read from the file of the tenant on first use.
+   */
+  public static Future<UserFingerprintStore> get(Vertx vertx, Map<String, String> okapiHeaders) {
+    String tenant = TenantTool.tenantId(okapiHeaders);
+    Path file = Path.of(ImportConfig.fingerprintDirectory(), tenant.replaceAll("[^A-Za-z0-9_-]", "_") + ".json");
+    return STORES.computeIfAbsent(file.toString(), key -> vertx.executeBlocking(() -> load(file)));
+  }
+
+  public static void clear() {
+    STORES.clear();
+  }
+
+  /**
+   * The fingerprint of a user that has been mapped to the mod-users format.
+   *
+   * @param preference the request preference of the user, null if there is none
+   */
+  public static String fingerprint(User user, RequestPreference preference) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(UserNormalizer.normalize(user).toString().getBytes(StandardCharsets.UTF_8));
+    if (preference != null) {
+      digest.update(JsonBufferWriter.toBuffer(preference).getBytes());
+    }
+    return Base64.getEncoder().withoutPadding().encodeToString(digest.digest());
+  }
+
+  /**
+   * Whether the user with the externalSystemId was imported successfully with the fingerprint.
+   */
+  public boolean isUnchanged(String externalSystemId, String fingerprint) {
+    return externalSystemId != null && fingerprint.equals(fingerprints.get(externalSystemId));
+  }
+
+  public void put(String externalSystemId, String fingerprint) {
+    fingerprints.put(externalSystemId, fingerprint);
+  }
+
+  public void remove(String externalSystemId) {
+    fingerprints.remove(externalSystemId);
+  }
+
+  public int size() {
+    return fingerprints.size();
+  }
+
+  /**
+   * Write the fingerprints to the file of the tenant, replacing it atomically.
+   */
+  public Future<Void> save(Vertx vertx) {
+    Map<String, String> snapshot = new HashMap<>(fingerprints);
+    return vertx.executeBlocking(() -> {
+      write(snapshot);
+      return null;
+    });
+  }
+
+  private synchronized void write(Map<String, String> snapshot) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      DatabindCodec.mapper().writeValue(temp.toFile(), snapshot);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static UserFingerprintStore load(Path file) {
+    if (!Files.exists(file)) {
+      return new UserFingerprintStore(file, Map.of());
+    }
+    try {
+      Map<String, String> fingerprints = DatabindCodec.mapper().readValue(file.toFile(), MAP_TYPE);
+      LOGGER.info("Read {} user fingerprints from {}", fingerprints.size(), file);
+      return new UserFingerprintStore(file, fingerprints);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed to read user fingerprints from {}, starting without: {}", file, e.getMessage());
+      return new UserFingerprintStore(file, Map.of());
+    }
+  }
+}
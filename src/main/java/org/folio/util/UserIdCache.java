@@ -0,0 +1,102 @@
+package org.folio.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.tools.utils.TenantTool;
+
+/**
+ * Cache of the ids of the users of a tenant by externalSystemId with the sourceType
+ * prefix, shared by all imports of the tenant.
+ *
+ * <p>The ids are taken from the user searches and the created users. A user with a cached
+ * id is updated without searching it; if the update fails with 404 or 409 the id is removed
+ * and the user is searched. When there are more than
+ * {@link ImportConfig#userIdCacheMaxEntries()} ids the least recently used id is evicted;
+ * a maximum of 0 disables the cache.
+ */
+public final class UserIdCache {
+
+  private static final Map<String, String> IDS = new LinkedHashMap<>(16, 0.75f, true);
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+  private static final AtomicLong EVICTIONS = new AtomicLong();
+
+  private UserIdCache() {
+  }
+
+  public static boolean isEnabled() {
+    return ImportConfig.userIdCacheMaxEntries() > 0;
+  }
+
+  /**
+   * @param externalSystemId the externalSystemId with the sourceType prefix
+   * @return the cached id of the user, null if there is none
+   */
+  public static String get(Map<String, String> okapiHeaders, String externalSystemId) {
+    String id;
+    synchronized (IDS) {
+      id = IDS.get(key(okapiHeaders, externalSystemId));
+    }
+    (id == null ? MISSES : HITS).incrementAndGet();
+    return id;
+  }
+
+  /**
+   * @param externalSystemId the externalSystemId with the sourceType prefix
+   */
+  public static void put(Map<String, String> okapiHeaders, String externalSystemId, String id) {
+    int maxEntries = ImportConfig.userIdCacheMaxEntries();
+    if (maxEntries <= 0 || externalSystemId == null || id == null) {
+      return;
+    }
+    synchronized (IDS) {
+      IDS.put(key(okapiHeaders, externalSystemId), id);
+      var iterator = IDS.entrySet().iterator();
+      while (IDS.size() > maxEntries && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+        EVICTIONS.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Remove the id of a user that has been deleted or whose id has changed.
+   */
+  public static void remove(Map<String, String> okapiHeaders, String externalSystemId) {
+    synchronized (IDS) {
+      IDS.remove(key(okapiHeaders, externalSystemId));
+    }
+  }
+
+  public static void clear() {
+    synchronized (IDS) {
+      IDS.clear();
+    }
+  }
+
+  public static int size() {
+    synchronized (IDS) {
+      return IDS.size();
+    }
+  }
+
+  public static long getHits() {
+    return HITS.get();
+  }
+
+  public static long getMisses() {
+    return MISSES.get();
+  }
+
+  public static long getEvictions() {
+    return EVICTIONS.get();
+  }
+
+  private static String key(Map<String, String> okapiHeaders, String externalSystemId) {
+    return okapiHeaders.get(XOkapiHeaders.URL) + " " + TenantTool.tenantId(okapiHeaders) + " " + externalSystemId;
+  }
+}
@@ -0,0 +1,85 @@
+package org.folio.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Ids of new users.
+ */
+public final class UserIds {
+
+  /**
+   * How the id of a new user without id is generated.
+   */
+  public enum Strategy {
+    /** a random UUID (version 4) */
+    RANDOM,
+    /**
+     * a name-based UUID (version 5) of the tenant and the externalSystemId with the
+     * sourceType prefix, the id of a user is known without searching it
+     */
+    NAME_BASED,
+    /** a UUID starting with the creation time in milliseconds (version 7) */
+    TIME_ORDERED
+  }
+
+  /** The namespace of the name-based user ids. */
+  private static final UUID NAMESPACE = UUID.fromString("3c1d6b3e-8a0f-4f7e-9d51-6f0c2b8e4a17");
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  static LongSupplier clock = System::currentTimeMillis;
+
+  private UserIds() {
+  }
+
+  /**
+   * The id of a new user with the {@link ImportConfig#userIdStrategy()}.
+   *
+   * @param externalSystemId the externalSystemId with the sourceType prefix
+   */
+  public static String newUserId(String tenant, String externalSystemId) {
+    return switch (ImportConfig.userIdStrategy()) {
+      case NAME_BASED -> nameBased(tenant, externalSystemId).toString();
+      case TIME_ORDERED -> timeOrdered().toString();
+      default -> UUID.randomUUID().toString();
+    };
+  }
+
+  /**
+   * A version 5 UUID of the tenant and the externalSystemId.
+   */
+  public static UUID nameBased(String tenant, String externalSystemId) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer namespace = ByteBuffer.allocate(16)
+        .putLong(NAMESPACE.getMostSignificantBits())
+        .putLong(NAMESPACE.getLeastSignificantBits());
+    digest.update(namespace.array());
+    // a tenant id cannot contain a NUL character
+    digest.update((tenant + '\0' + externalSystemId).getBytes(StandardCharsets.UTF_8));
+    ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+    long msb = hash.getLong();
+    long lsb = hash.getLong();
+    msb = (msb & ~0xF000L) | 0x5000L;
+    lsb = (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  /**
+   * A version 7 UUID: 48 bits of the current time in milliseconds followed by random bits.
+   */
+  public static UUID timeOrdered() {
+    long msb = (clock.getAsLong() << 16) | 0x7000L | (RANDOM.nextInt() & 0x0FFFL);
+    long lsb = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+}
@@ -0,0 +1,87 @@
+package org.folio.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * Builds a normalized JSON tree of a user to compare the user that would be sent to
+ * mod-users with the user that mod-users holds.
+ *
+ * <p>The tree is the JSON sent to mod-users without the properties set by mod-users
+ * (metadata, createdDate, updatedDate), without null values, empty arrays and empty
+ * objects, with the properties sorted by name and the elements of every array sorted,
+ * so that the order of addresses, departments and other lists does not matter.
+ */
+public final class UserNormalizer {
+
+  private static final Set<String> IGNORED_PROPERTIES = Set.of("metadata", "createdDate", "updatedDate");
+  private static final Comparator<JsonNode> ELEMENT_ORDER = Comparator.comparing(JsonNode::toString);
+
+  private UserNormalizer() {
+  }
+
+  public static JsonNode normalize(User user) {
+    ObjectNode tree = JsonBufferWriter.mapper().valueToTree(user);
+    tree.remove(IGNORED_PROPERTIES);
+    JsonNode normalized = normalize(tree);
+    return normalized == null ? JsonNodeFactory.instance.objectNode() : normalized;
+  }
+
+  /**
+   * Whether sending the user would not change the existing user.
+   */
+  public static boolean isUnchanged(User user, User existingUser) {
+    return normalize(user).equals(normalize(existingUser));
+  }
+
+  /**
+   * @return the normalized node, null if it is null or empty
+   */
+  private static JsonNode normalize(JsonNode node) {
+    if (node.isObject()) {
+      Map<String, JsonNode> properties = new TreeMap<>();
+      for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+        Map.Entry<String, JsonNode> property = it.next();
+        JsonNode value = normalize(property.getValue());
+        if (value != null) {
+          properties.put(property.getKey(), value);
+        }
+      }
+      if (properties.isEmpty()) {
+        return null;
+      }
+      ObjectNode object = JsonNodeFactory.instance.objectNode();
+      object.setAll(properties);
+      return object;
+    }
+    if (node.isArray()) {
+      List<JsonNode> elements = new ArrayList<>(node.size());
+      for (JsonNode element : node) {
+        JsonNode value = normalize(element);
+        if (value != null) {
+          elements.add(value);
+        }
+      }
+      if (elements.isEmpty()) {
+        return null;
+      }
+      elements.sort(ELEMENT_ORDER);
+      ArrayNode array = JsonNodeFactory.instance.arrayNode(elements.size());
+      array.addAll(elements);
+      return array;
+    }
+    return node.isNull() ? null : node;
+  }
+}
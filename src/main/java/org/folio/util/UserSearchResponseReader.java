@@ -0,0 +1,90 @@
+package org.folio.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.jackson.DatabindCodec;
+
+import org.folio.model.ExistingUser;
+
+/**
+ * Reads a /users search response with a streaming parser, without building a JSON tree.
+ *
+ * <p>Only externalSystemId, id, username and active are read from each user, the full user
+ * is decoded by {@link ExistingUser#getUser()} when it is needed.
+ */
+public final class UserSearchResponseReader {
+
+  /**
+   * The users of a search response page and the totalRecords of the search.
+   */
+  public record UserSearchResult(List<ExistingUser> users, int totalRecords) {
+  }
+
+  private UserSearchResponseReader() {
+  }
+
+  /**
+   * @throws DecodeException if the body is not a JSON object
+   */
+  public static UserSearchResult read(Buffer body) {
+    byte[] json = body.getBytes();
+    List<ExistingUser> users = new ArrayList<>();
+    Integer totalRecords = null;
+    try (JsonParser parser = DatabindCodec.mapper().getFactory().createParser(json)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new DecodeException("User search response is not a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if ("users".equals(name) && token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            users.add(readUser(parser, json));
+          }
+        } else if ("totalRecords".equals(name) && token == JsonToken.VALUE_NUMBER_INT) {
+          totalRecords = parser.getIntValue();
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode user search response: " + e.getMessage(), e);
+    }
+    return new UserSearchResult(users, totalRecords == null ? users.size() : totalRecords);
+  }
+
+  private static ExistingUser readUser(JsonParser parser, byte[] json) throws IOException {
+    int start = (int) parser.currentTokenLocation().getByteOffset();
+    String externalSystemId = null;
+    String id = null;
+    String username = null;
+    boolean active = false;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String name = parser.currentName();
+      JsonToken token = parser.nextToken();
+      switch (name) {
+        case "externalSystemId" -> externalSystemId = textOrNull(parser, token);
+        case "id" -> id = textOrNull(parser, token);
+        case "username" -> username = textOrNull(parser, token);
+        case "active" -> active = token == JsonToken.VALUE_TRUE;
+        default -> parser.skipChildren();
+      }
+    }
+    int end = (int) parser.currentLocation().getByteOffset();
+    return new ExistingUser(externalSystemId, id, username, active, json, start, end - start);
+  }
+
+  private static String textOrNull(JsonParser parser, JsonToken token) throws IOException {
+    if (token == JsonToken.VALUE_STRING) {
+      return parser.getText();
+    }
+    parser.skipChildren();
+    return null;
+  }
+}
@@ -0,0 +1,64 @@
+package org.folio.util;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+/**
+ * Incremental parser of a user import request body that is fed chunk by chunk as it is
+ * received.
+ */
+public interface UserStreamParser {
+
+  interface Listener {
+
+    /**
+     * Called once with the import options before the first user.
+     */
+    void header(UserdataimportCollection header);
+
+    void user(User user);
+
+    /**
+     * Called for a user record that cannot be mapped to a user.
+     */
+    void invalidUser(String externalSystemId, String username, String errorMessage);
+
+    /**
+     * Called for an import option that follows the users and is therefore ignored.
+     */
+    void trailingField(String name);
+  }
+
+  void feed(byte[] chunk) throws IOException;
+
+  /**
+   * Signal the end of the request body.
+   *
+   * @throws IOException if the request body is incomplete or invalid
+   */
+  void end() throws IOException;
+
+  /**
+   * Map a parsed user record and pass it to the listener, either as a user or as an
+   * invalid user.
+   */
+  static void publishUser(ObjectMapper mapper, JsonNode node, Listener listener) {
+    String externalSystemId = node.path("externalSystemId").asText(null);
+    String username = node.path("username").asText(null);
+    User user;
+    try {
+      user = mapper.treeToValue(node, User.class);
+      ValidationUtil.checkIsNotNull("username", user.getUsername());
+      ValidationUtil.checkIsNotNull("externalSystemId", user.getExternalSystemId());
+    } catch (IOException | RuntimeException e) {
+      listener.invalidUser(externalSystemId, username, e.getMessage());
+      return;
+    }
+    listener.user(user);
+  }
+}
@@ -0,0 +1,99 @@
+package org.folio.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.CustomField;
+import org.folio.rest.jaxrs.model.CustomFields;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.SelectField;
+import org.folio.rest.jaxrs.model.SelectFieldOption;
+import org.folio.rest.jaxrs.model.SelectFieldOptions;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Per-user cost of mapping an imported user with the {@link UserMappingPlan}.
+ *
+ * <p>Run with {@code mvn test-compile} and the main method of this class, it runs with the
+ * gc profiler so that the allocations per user are reported as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMappingPlanBenchmark {
+
+  @Param({"10", "2000"})
+  int departmentCount;
+
+  UserImportData importData;
+
+  @Setup
+  public void setUp() {
+    Set<Department> departments = new HashSet<>();
+    for (int i = 0; i < departmentCount; i++) {
+      departments.add(new Department().withId("d" + i).withName("Department " + i).withCode("D" + i));
+    }
+    List<SelectFieldOption> options = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      options.add(new SelectFieldOption().withId("opt_" + i).withValue("value " + i));
+    }
+    var customField = new CustomField()
+        .withRefId("color")
+        .withType(CustomField.Type.MULTI_SELECT_DROPDOWN)
+        .withSelectField(new SelectField().withOptions(new SelectFieldOptions().withValues(options)));
+    importData = new UserImportData(new UserdataimportCollection().withSourceType("test"))
+        .withSystemData(UserSystemData.builder()
+            .patronGroups(Map.of("staff", "pg1", "faculty", "pg2"))
+            .addressTypes(Map.of("Home", "at1", "Work", "at2"))
+            .servicePoints(Map.of())
+            .departments(departments)
+            .customFields(Set.of(customField))
+            .build());
+  }
+
+  @Benchmark
+  public User mapUser() {
+    var user = new User()
+        .withExternalSystemId("123")
+        .withPatronGroup("staff")
+        .withDepartments(Set.of("Department 1", "Department " + (departmentCount - 1)))
+        .withCustomFields(new CustomFields().withAdditionalProperty("color", List.of("value 1", "value 42")))
+        .withPersonal(new Personal()
+            .withPreferredContactTypeId("email")
+            .withAddresses(List.of(new Address().withAddressTypeId("Home"))));
+    importData.getMappingPlan().map(user);
+    return user;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(UserMappingPlanBenchmark.class.getSimpleName())
+        .addProfiler("gc")
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,93 @@
+package org.folio.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.folio.model.exception.CustomFieldMappingFailedException;
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.CustomFields;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.User;
+import org.junit.Test;
+
+public class UserMappingPlanTest {
+
+  private static final UserSystemData systemData = UserSystemData.builder()
+      .patronGroups(Map.of("staff", "pg1"))
+      .addressTypes(Map.of("Home", "at1"))
+      .build();
+
+  @Test
+  public void sourceTypeStep() {
+    assertThat(UserMappingPlan.compile(null, systemData).getStepCount(), is(4));
+    assertThat(UserMappingPlan.compile("", systemData).getStepCount(), is(4));
+    var plan = UserMappingPlan.compile("test", systemData);
+    assertThat(plan.getStepCount(), is(5));
+    var user = new User().withExternalSystemId("123");
+    plan.map(user);
+    assertThat(user.getExternalSystemId(), is("test_123"));
+  }
+
+  @Test
+  public void personal() {
+    var user = new User()
+        .withPatronGroup("staff")
+        .withPersonal(new Personal()
+            .withPreferredContactTypeId("EMail")
+            .withAddresses(List.of(
+                new Address().withAddressTypeId("Home"),
+                new Address().withAddressTypeId("Work"),
+                new Address())));
+    UserMappingPlan.compile(null, systemData).map(user);
+    assertThat(user.getPatronGroup(), is("pg1"));
+    assertThat(user.getPersonal().getPreferredContactTypeId(), is("002"));
+    assertThat(user.getPersonal().getAddresses().size(), is(1));
+    assertThat(user.getPersonal().getAddresses().get(0).getAddressTypeId(), is("at1"));
+  }
+
+  @Test
+  public void snapshotRestoresReceivedUser() {
+    var home = new Address().withAddressTypeId("Home");
+    var work = new Address().withAddressTypeId("Work");
+    var user = new User()
+        .withExternalSystemId("123")
+        .withPatronGroup("staff")
+        .withPersonal(new Personal()
+            .withPreferredContactTypeId("email")
+            .withAddresses(List.of(home, work)));
+    var snapshot = UserMappingPlan.snapshot(user);
+    UserMappingPlan.compile("test", systemData).map(user);
+    assertThat(user.getExternalSystemId(), is("test_123"));
+    snapshot.restore();
+    assertThat(user.getExternalSystemId(), is("123"));
+    assertThat(user.getPatronGroup(), is("staff"));
+    assertThat(user.getPersonal().getPreferredContactTypeId(), is("email"));
+    assertThat(user.getPersonal().getAddresses(), is(List.of(home, work)));
+    assertThat(home.getAddressTypeId(), is("Home"));
+  }
+
+  @Test
+  public void unknownPreferredContactType() {
+    var user = new User().withPersonal(new Personal().withPreferredContactTypeId("pigeon"));
+    UserMappingPlan.compile(null, systemData).map(user);
+    assertThat(user.getPersonal().getPreferredContactTypeId(), is(nullValue()));
+  }
+
+  @Test
+  public void noDepartmentsAndCustomFieldsInTenant() {
+    var user = new User().withDepartments(Set.of()).withCustomFields(new CustomFields());
+    UserMappingPlan.compile(null, systemData).map(user);
+    assertThat(user.getDepartments(), is(Set.of()));
+  }
+
+  @Test(expected = CustomFieldMappingFailedException.class)
+  public void customFieldWithoutCustomFieldsInTenant() {
+    var user = new User().withCustomFields(new CustomFields().withAdditionalProperty("color", "red"));
+    UserMappingPlan.compile(null, systemData).map(user);
+  }
+}
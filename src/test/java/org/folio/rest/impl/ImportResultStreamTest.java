@@ -0,0 +1,85 @@
+package org.folio.rest.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.folio.model.SingleUserImportResponse;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.util.BatchPipeline;
+
+@RunWith(VertxUnitRunner.class)
+public class ImportResultStreamTest {
+
+  private static final int BATCHES = 500;
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void slowReaderPausesThePipeline(TestContext context) {
+    // 500 lines of 100 kB exceed the write queue and the socket buffers
+    String errorMessage = "x".repeat(100_000);
+    AtomicInteger started = new AtomicInteger();
+    AtomicLong lines = new AtomicLong();
+
+    vertx.createHttpServer()
+        .requestHandler(request -> {
+          ImportResultStream results = new ImportResultStream(request.response());
+          BatchPipeline<Integer, Void> pipeline = new BatchPipeline<>(1, 1, batch -> {
+            started.incrementAndGet();
+            results.userResult(SingleUserImportResponse.failed(String.valueOf(batch.get(0)), null, -1, errorMessage));
+            return Future.succeededFuture();
+          });
+          results.throttle(pipeline);
+          pipeline.addAll(IntStream.range(0, BATCHES).boxed().toList());
+          pipeline.end().onComplete(x -> results.end(new ImportResponse()));
+        })
+        .listen(0)
+        .compose(server -> vertx.createHttpClient().request(HttpMethod.GET, server.actualPort(), "localhost", "/"))
+        .compose(request -> request.send())
+        .compose(response -> {
+          response.pause();
+          response.handler(buffer -> {
+            for (int i = 0; i < buffer.length(); i++) {
+              if (buffer.getByte(i) == '\n') {
+                lines.incrementAndGet();
+              }
+            }
+          });
+          return vertx.timer(500, TimeUnit.MILLISECONDS)
+              .compose(x -> {
+                // the client does not read, the pipeline must wait for it
+                context.assertTrue(started.get() < BATCHES, "started batches: " + started.get());
+                Future<Void> end = response.end();
+                response.resume();
+                return end;
+              });
+        })
+        .onComplete(context.asyncAssertSuccess(x -> {
+          context.assertEquals(BATCHES, started.get());
+          // one line per batch and the summary
+          context.assertEquals(BATCHES + 1L, lines.get());
+        }));
+  }
+}
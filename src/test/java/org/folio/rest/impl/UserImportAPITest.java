@@ -1,9 +1,13 @@
 package org.folio.rest.impl;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 
 import static org.folio.TestUtils.CREATED_RECORDS;
 import static org.folio.TestUtils.ERROR;
@@ -26,21 +30,36 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import io.restassured.RestAssured;
 import io.restassured.http.Header;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.util.ImportConfig;
 import org.folio.util.MockJson;
+import org.folio.util.UserFingerprintStore;
+import org.folio.util.UserIdCache;
+import org.folio.util.UserIds;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 
 import org.folio.okapi.common.XOkapiHeaders;
@@ -60,6 +79,9 @@ import org.folio.rest.jaxrs.model.UserdataimportCollection;
 @RunWith(VertxUnitRunner.class)
 public class UserImportAPITest {
 
+  private static final Header OCTET_STREAM_CONTENT_TYPE_HEADER = new Header("Content-Type", "application/octet-stream");
+  private static final Header NDJSON_CONTENT_TYPE_HEADER = new Header("Content-Type", "application/x-ndjson");
+
   public static final int PORT = NetworkUtils.nextFreePort();
   public static final int MOCK_PORT = NetworkUtils.nextFreePort();
   public static final String HOST = "http://localhost";
@@ -67,6 +89,9 @@ public class UserImportAPITest {
   private Vertx vertx;
   private MockJson mock = new MockJson("mock_standard.json");
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Before
   public void setUp(TestContext context) {
     RestAssured.port = PORT;
@@ -87,6 +112,7 @@ public class UserImportAPITest {
 
   @After
   public void tearDown(TestContext context) {
+    System.clearProperty(ImportConfig.USER_SCAN_PAGE_SIZE);
     vertx.close()
     .onComplete(context.asyncAssertSuccess());
   }
@@ -208,6 +234,95 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithUserCreationInCreateOnlyMode() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(List.of(generateUser("1234567", "Amy", "Cabble", null)))
+      .withTotalRecords(1)
+      .withImportMode(UserdataimportCollection.ImportMode.CREATE_ONLY);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+
+    assertThat(mock.getRequestCount("GET", "/users?query=externalSystemId%3D%3D%28%22amy_cabble%22%29"
+        + "&limit=2&offset=0&orderBy=externalSystemId&order=asc"), is(0));
+    assertThat(mock.getRequestCount("POST", "/users"), is(1));
+  }
+
+  @Test
+  public void testImportWithExistingUserInCreateOnlyMode() {
+
+    mock.setMockJsonContent("mock_user_creation_conflict.json");
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(List.of(generateUser("1234567", "Amy", "Cabble", null)))
+      .withTotalRecords(1)
+      .withImportMode(UserdataimportCollection.ImportMode.CREATE_ONLY);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(0))
+      .body(FAILED_RECORDS, equalTo(1))
+      .body(FAILED_USERS + "[0]." + USER_ERROR_MESSAGE, allOf(
+        startsWith(UserImportAPIConstants.FAILED_TO_CREATE_EXISTING_USER_WITH_EXTERNAL_SYSTEM_ID + "amy_cabble: "),
+        containsString("User with this username already exists")))
+      .statusCode(200);
+
+    // the permission user created before the conflict is not left behind
+    assertThat(mock.getRequestCount("POST", "/perms/users"), is(1));
+    assertThat(mock.getRequestCount("DELETE", "/perms/users/4c8d2e6f-0a1b-4c3d-9e5f-6a7b8c9d0e1f"), is(1));
+  }
+
+  @Test
+  public void testImportWithNewUserInUpdateOnlyMode() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(List.of(generateUser("1234567", "Amy", "Cabble", null)))
+      .withTotalRecords(1)
+      .withImportMode(UserdataimportCollection.ImportMode.UPDATE_ONLY);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(0))
+      .body(FAILED_RECORDS, equalTo(1))
+      .body(FAILED_USERS + "[0]." + USER_ERROR_MESSAGE, equalTo(
+          UserImportAPIConstants.USER_DOES_NOT_EXIST_WITH_EXTERNAL_SYSTEM_ID + "amy_cabble"))
+      .statusCode(200);
+
+    assertThat(mock.getRequestCount("POST", "/perms/users"), is(0));
+    assertThat(mock.getRequestCount("POST", "/users"), is(0));
+  }
+
   @Test
   public void testImportWithUserCreationWithoutPersonalData() throws IOException {
 
@@ -386,6 +501,77 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithConcurrentPermissionUserError() {
+
+    mock.setMockJsonContent("mock_user_creation_with_permission_error.json");
+    System.setProperty(ImportConfig.CONCURRENT_PERMISSION_USERS, "true");
+    try {
+      String id = "2d4fc7a0-5d1b-4b8e-9a0c-3e9b7f1c6a52";
+      List<User> users = new ArrayList<>();
+      users.add(generateUser("1234567", "Amy", "Cabble", id));
+
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(1);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(CREATED_RECORDS, equalTo(0))
+        .body(FAILED_RECORDS, equalTo(1))
+        .body(FAILED_USERS + "[0].errorMessage",
+          equalTo(UserImportAPIConstants.FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID + "amy_cabble"))
+        .statusCode(200);
+
+      // the user created without permission user is deleted
+      assertThat(mock.getRequestCount("DELETE", "/users/" + id), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.CONCURRENT_PERMISSION_USERS);
+    }
+  }
+
+  @Test
+  public void testImportWithConcurrentPermissionUserAndCleanupError() {
+
+    mock.setMockJsonContent("mock_user_creation_with_permission_error.json");
+    System.setProperty(ImportConfig.CONCURRENT_PERMISSION_USERS, "true");
+    try {
+      // the mock has no DELETE for this id and answers 404
+      String id = UUID.randomUUID().toString();
+      List<User> users = new ArrayList<>();
+      users.add(generateUser("1234567", "Amy", "Cabble", id));
+
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(1);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(CREATED_RECORDS, equalTo(0))
+        .body(FAILED_RECORDS, equalTo(1))
+        .body(FAILED_USERS + "[0].errorMessage", startsWith(
+          UserImportAPIConstants.FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID + "amy_cabble. "
+          + UserImportAPIConstants.FAILED_TO_DELETE_USER_WITH_ID + id))
+        .statusCode(200);
+
+      assertThat(mock.getRequestCount("DELETE", "/users/" + id), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.CONCURRENT_PERMISSION_USERS);
+    }
+  }
+
   @Test
   public void testImportWithUserSearchError() throws IOException {
 
@@ -451,6 +637,9 @@ public class UserImportAPITest {
         UserImportAPIConstants.FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID + users.get(0).getExternalSystemId()))
       .body(FAILED_USERS, hasSize(1))
       .statusCode(200);
+
+    // the permission user of the user that could not be created is deleted
+    assertThat(mock.getRequestCount("DELETE", "/perms/users/7e3b9c2a-1f4d-4a6b-8c5e-9d0f1a2b3c4d"), is(1));
   }
 
   /*
@@ -495,6 +684,81 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithBatchUserCreation() {
+
+    mock.setMockJsonContent("mock_multiple_user_creation.json");
+    mock.setBatchUsersUrl("/users/batch");
+    System.setProperty(ImportConfig.BATCH_USERS_ENDPOINT, "/users/batch");
+    try {
+      List<User> users = new ArrayList<>();
+      for (int i = 1; i <= 10; i++) {
+        users.add(generateUser(String.valueOf(i), i + "1", i + "2", null));
+      }
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(10);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+        .body(TOTAL_RECORDS, equalTo(10))
+        .body(CREATED_RECORDS, equalTo(10))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      assertThat(mock.getRequestCount("POST", "/users/batch"), is(1));
+      assertThat(mock.getRequestCount("POST", "/users"), is(0));
+      assertThat(mock.getRequestCount("POST", "/perms/users"), is(10));
+
+      // without the endpoint the users are created one by one
+      mock.setBatchUsersUrl(null);
+      System.setProperty(ImportConfig.BATCH_USERS_RETRY_SECONDS, "0");
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(CREATED_RECORDS, equalTo(10))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      assertThat(mock.getRequestCount("POST", "/users/batch"), is(2));
+      assertThat(mock.getRequestCount("POST", "/users"), is(10));
+
+      // the endpoint is tried again once the retry time has passed
+      mock.setBatchUsersUrl("/users/batch");
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(CREATED_RECORDS, equalTo(10))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      assertThat(mock.getRequestCount("POST", "/users/batch"), is(3));
+      assertThat(mock.getRequestCount("POST", "/users"), is(10));
+    } finally {
+      System.clearProperty(ImportConfig.BATCH_USERS_ENDPOINT);
+      System.clearProperty(ImportConfig.BATCH_USERS_RETRY_SECONDS);
+    }
+  }
+
   @Test
   public void testImportWithUserUpdate()  {
 
@@ -526,6 +790,227 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithUnchangedUser() {
+
+    mock.setMockJsonContent("mock_user_update_unchanged.json");
+    System.setProperty(ImportConfig.SKIP_UNCHANGED_USERS, "true");
+    try {
+      List<User> users = new ArrayList<>();
+      users.add(generateUser("89101112", "User", "Update", null));
+
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(1);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+        .body(TOTAL_RECORDS, equalTo(1))
+        .body(CREATED_RECORDS, equalTo(0))
+        .body(UPDATED_RECORDS, equalTo(0))
+        .body("unchangedRecords", equalTo(1))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      assertThat(mock.getRequestCount("PUT", "/users/58512926-9a29-483b-b801-d36aced855d3"), is(0));
+    } finally {
+      System.clearProperty(ImportConfig.SKIP_UNCHANGED_USERS);
+    }
+  }
+
+  @Test
+  public void testImportWithUnchangedFingerprint() throws IOException {
+
+    mock.setMockJsonContent("mock_user_update.json");
+    System.setProperty(ImportConfig.FINGERPRINT_DIRECTORY, temporaryFolder.newFolder().getPath());
+    try {
+      for (int i = 0; i < 2; i++) {
+        UserdataimportCollection collection = new UserdataimportCollection()
+          .withUsers(List.of(generateUser("89101112", "User", "Update", null)))
+          .withTotalRecords(1);
+
+        given()
+          .header(TENANT_HEADER)
+          .header(TOKEN_HEADER)
+          .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+          .header(JSON_CONTENT_TYPE_HEADER)
+          .body(collection)
+          .post(USER_IMPORT)
+          .then()
+          .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+          .body(TOTAL_RECORDS, equalTo(1))
+          .body(UPDATED_RECORDS, equalTo(i == 0 ? 1 : 0))
+          .body("unchangedRecords", equalTo(i == 0 ? 0 : 1))
+          .body(FAILED_RECORDS, equalTo(0))
+          .statusCode(200);
+      }
+
+      // the second import neither searches nor updates the user
+      assertThat(mock.getRequestCount("GET", "/users?query=externalSystemId%3D%3D%28%22user_update%22%29"
+          + "&limit=2&offset=0&orderBy=externalSystemId&order=asc"), is(1));
+      assertThat(mock.getRequestCount("PUT", "/users/58512926-9a29-483b-b801-d36aced855d3"), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.FINGERPRINT_DIRECTORY);
+      UserFingerprintStore.clear();
+    }
+  }
+
+  @Test
+  public void testImportWithFingerprintAndChangedPatronGroup() throws IOException {
+
+    System.setProperty(ImportConfig.FINGERPRINT_DIRECTORY, temporaryFolder.newFolder().getPath());
+    try {
+      // the patron group of the user gets another id for the second import
+      for (String mockJson : List.of("mock_user_update.json", "mock_user_update_regrouped.json")) {
+        mock.setMockJsonContent(mockJson);
+        UserdataimportCollection collection = new UserdataimportCollection()
+          .withUsers(List.of(generateUser("89101112", "User", "Update", null)))
+          .withTotalRecords(1);
+
+        given()
+          .header(TENANT_HEADER)
+          .header(TOKEN_HEADER)
+          .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+          .header(JSON_CONTENT_TYPE_HEADER)
+          .body(collection)
+          .post(USER_IMPORT)
+          .then()
+          .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+          .body(UPDATED_RECORDS, equalTo(1))
+          .body("unchangedRecords", equalTo(0))
+          .statusCode(200);
+      }
+
+      assertThat(mock.getRequestCount("PUT", "/users/58512926-9a29-483b-b801-d36aced855d3"), is(2));
+    } finally {
+      System.clearProperty(ImportConfig.FINGERPRINT_DIRECTORY);
+      UserFingerprintStore.clear();
+    }
+  }
+
+  @Test
+  public void testImportWithCachedUserId() {
+
+    mock.setMockJsonContent("mock_user_update.json");
+    System.setProperty(ImportConfig.USER_ID_CACHE_MAX_ENTRIES, "100");
+    try {
+      for (int i = 0; i < 3; i++) {
+        if (i == 2) {
+          // a stale id is removed on 404 and the user is searched
+          Map<String, String> okapiHeaders = new HashMap<>();
+          okapiHeaders.put(XOkapiHeaders.URL, getOkapiUrl());
+          okapiHeaders.put("x-okapi-tenant", "diku");
+          UserIdCache.put(okapiHeaders, "user_update", "00000000-0000-4000-8000-000000000000");
+        }
+        UserdataimportCollection collection = new UserdataimportCollection()
+          .withUsers(List.of(generateUser("89101112", "User", "Update", null)))
+          .withTotalRecords(1);
+
+        given()
+          .header(TENANT_HEADER)
+          .header(TOKEN_HEADER)
+          .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+          .header(JSON_CONTENT_TYPE_HEADER)
+          .body(collection)
+          .post(USER_IMPORT)
+          .then()
+          .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+          .body(TOTAL_RECORDS, equalTo(1))
+          .body(UPDATED_RECORDS, equalTo(1))
+          .body(FAILED_RECORDS, equalTo(0))
+          .statusCode(200);
+      }
+
+      // the second import updates the user without searching it
+      assertThat(mock.getRequestCount("GET", "/users?query=externalSystemId%3D%3D%28%22user_update%22%29"
+          + "&limit=2&offset=0&orderBy=externalSystemId&order=asc"), is(2));
+      assertThat(mock.getRequestCount("PUT", "/users/00000000-0000-4000-8000-000000000000"), is(1));
+      assertThat(mock.getRequestCount("PUT", "/users/58512926-9a29-483b-b801-d36aced855d3"), is(3));
+    } finally {
+      System.clearProperty(ImportConfig.USER_ID_CACHE_MAX_ENTRIES);
+      UserIdCache.clear();
+    }
+  }
+
+  @Test
+  public void testImportWithNameBasedUserIds() {
+
+    mock.setMockJsonContent("mock_user_upsert_name_based_id.json");
+    System.setProperty(ImportConfig.USER_ID_STRATEGY, "name-based");
+    try {
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(List.of(generateUser("89101112", "User", "Update", null),
+            generateUser("1234567", "Amy", "Cabble", null)))
+        .withTotalRecords(2);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+        .body(TOTAL_RECORDS, equalTo(2))
+        .body(CREATED_RECORDS, equalTo(1))
+        .body(UPDATED_RECORDS, equalTo(1))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      // the existing user is not searched, the new user is searched after the update failed with 404
+      assertThat(mock.getRequestCount("PUT", "/users/636121cc-0c60-5d86-af92-a668dffb1666"), is(1));
+      assertThat(mock.getRequestCount("PUT", "/users/" + UserIds.nameBased("diku", "amy_cabble")), is(1));
+      assertThat(mock.getRequestCount("GET", "/users?query=externalSystemId%3D%3D%28%22amy_cabble%22%29"
+          + "&limit=2&offset=0&orderBy=externalSystemId&order=asc"), is(1));
+      assertThat(mock.getRequestCount("POST", "/users"), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.USER_ID_STRATEGY);
+    }
+  }
+
+  @Test
+  public void testImportWithNameBasedUserIdsAndExistingRandomId() {
+
+    mock.setMockJsonContent("mock_user_upsert_name_based_id.json");
+    System.setProperty(ImportConfig.USER_ID_STRATEGY, "name-based");
+    try {
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(List.of(generateUser("0000", "Old", "User", null)))
+        .withTotalRecords(1);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+        .body(TOTAL_RECORDS, equalTo(1))
+        .body(CREATED_RECORDS, equalTo(0))
+        .body(UPDATED_RECORDS, equalTo(1))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      // the user created before the name-based ids is found by the search and updated with its id
+      assertThat(mock.getRequestCount("PUT", "/users/" + UserIds.nameBased("diku", "old_user")), is(1));
+      assertThat(mock.getRequestCount("PUT", "/users/5a7c1e43-8f3b-4d2a-9c6e-2b1f0d7e9a31"), is(1));
+      assertThat(mock.getRequestCount("POST", "/perms/users"), is(0));
+      assertThat(mock.getRequestCount("POST", "/users"), is(0));
+    } finally {
+      System.clearProperty(ImportConfig.USER_ID_STRATEGY);
+    }
+  }
+
   @Test
   public void testImportWithUserUpdateAndWrongSchemaInUserSearchResult() throws IOException {
 
@@ -630,6 +1115,8 @@ public class UserImportAPITest {
   public void testImportWithMoreUserUpdateAndDeactivation() throws IOException {
 
     mock.setMockJsonContent("mock_user_update_and_deactivation.json");
+    // the mock lists the existing users in two pages
+    System.setProperty(ImportConfig.USER_SCAN_PAGE_SIZE, "10");
 
     List<User> users = new ArrayList<>();
     users.add(generateUser("11", "111", "112", null));
@@ -663,13 +1150,141 @@ public class UserImportAPITest {
       .body(UPDATED_RECORDS, equalTo(10))
       .body(FAILED_RECORDS, equalTo(0))
       .body(FAILED_USERS, hasSize(0))
+      .body("deactivatedRecords", equalTo(1))
+      .body("failedDeactivations", hasSize(0))
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithKeysetUserScanAndDeactivation() {
+
+    mock.setMockJsonContent("mock_user_update_and_deactivation_keyset.json");
+    // the mock lists the existing users in two pages
+    System.setProperty(ImportConfig.USER_SCAN_PAGE_SIZE, "10");
+    System.setProperty(ImportConfig.KEYSET_USER_SCAN, "true");
+    try {
+      List<User> users = new ArrayList<>();
+      for (int i = 1; i <= 10; i++) {
+        users.add(generateUser("1" + i, "1" + i + "1", "1" + i + "2", null));
+      }
+
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(10)
+        .withDeactivateMissingUsers(true)
+        .withUpdateOnlyPresentFields(false);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo("Deactivated missing users."))
+        .body(UPDATED_RECORDS, equalTo(10))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      assertThat(mock.getRequestCount("PUT", "/users/60838126-f5f0-4139-97df-011da2b6ad3c"), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.KEYSET_USER_SCAN);
+    }
+  }
+
+  @Test
+  public void testImportWithCompactUserIndexAndDeactivation() {
+
+    mock.setMockJsonContent("mock_user_update_and_deactivation_compact.json");
+    // the mock lists the existing users in two pages
+    System.setProperty(ImportConfig.USER_SCAN_PAGE_SIZE, "10");
+    System.setProperty(ImportConfig.COMPACT_USER_INDEX, "true");
+    try {
+      List<User> users = new ArrayList<>();
+      for (int i = 1; i <= 10; i++) {
+        users.add(generateUser("1" + i, "1" + i + "1", "1" + i + "2", null));
+      }
+
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(10)
+        .withDeactivateMissingUsers(true)
+        .withUpdateOnlyPresentFields(false);
+
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo("Deactivated missing users."))
+        .body(UPDATED_RECORDS, equalTo(10))
+        .body(FAILED_RECORDS, equalTo(0))
+        .statusCode(200);
+
+      // only the user to deactivate is fetched
+      assertThat(mock.getRequestCount("GET", "/users/60838126-f5f0-4139-97df-011da2b6ad3c"), is(1));
+      assertThat(mock.getRequestCount("PUT", "/users/60838126-f5f0-4139-97df-011da2b6ad3c"), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.COMPACT_USER_INDEX);
+    }
+  }
+
+  @Test
+  public void testImportWithDeactivationInCreateOnlyMode() {
+
+    mock.setMockJsonContent("mock_user_update_and_deactivation_compact.json");
+    // the mock lists the existing users in two pages
+    System.setProperty(ImportConfig.USER_SCAN_PAGE_SIZE, "10");
+    try {
+      for (String compactUserIndex : List.of("true", "false")) {
+        System.setProperty(ImportConfig.COMPACT_USER_INDEX, compactUserIndex);
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+          users.add(generateUser("1" + i, "1" + i + "1", "1" + i + "2", null));
+        }
+
+        UserdataimportCollection collection = new UserdataimportCollection()
+          .withUsers(users)
+          .withTotalRecords(10)
+          .withDeactivateMissingUsers(true)
+          .withImportMode(UserdataimportCollection.ImportMode.CREATE_ONLY);
+
+        given()
+          .header(TENANT_HEADER)
+          .header(TOKEN_HEADER)
+          .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+          .header(JSON_CONTENT_TYPE_HEADER)
+          .body(collection)
+          .post(USER_IMPORT)
+          .then()
+          .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY + " "
+              + UserImportAPIConstants.USER_DEACTIVATION_SKIPPED))
+          .body(CREATED_RECORDS, equalTo(0))
+          .body(FAILED_RECORDS, equalTo(10))
+          .body(FAILED_USERS + "[0]." + USER_ERROR_MESSAGE,
+              startsWith(UserImportAPIConstants.USER_ALREADY_EXISTS_WITH_EXTERNAL_SYSTEM_ID))
+          .statusCode(200);
+      }
+
+      // the existing users are neither created nor deactivated
+      assertThat(mock.getRequestCount("POST", "/perms/users"), is(0));
+      assertThat(mock.getRequestCount("POST", "/users"), is(0));
+      assertThat(mock.getRequestCount("PUT", "/users/60838126-f5f0-4139-97df-011da2b6ad3c"), is(0));
+    } finally {
+      System.clearProperty(ImportConfig.COMPACT_USER_INDEX);
+    }
+  }
+
   @Test
   public void testImportWithMoreUserUpdate() throws IOException {
 
     mock.setMockJsonContent("mock_more_user_update.json");
+    // the mock lists the existing users in two pages
+    System.setProperty(ImportConfig.USER_SCAN_PAGE_SIZE, "10");
 
     List<User> users = new ArrayList<>();
     users.add(generateUser("11", "111", "112", null));
@@ -714,6 +1329,10 @@ public class UserImportAPITest {
       .body(FAILED_RECORDS, equalTo(0))
       .body(FAILED_USERS, hasSize(0))
       .statusCode(200);
+
+    // the request preferences of each partition are fetched with one request
+    assertThat(mock.getRequestCount("GET",
+      "/request-preference-storage/request-preference?query=userId==126672ce-4eec-4724-b8aa-7f52adce1618"), is(0));
   }
 
   @Test
@@ -940,6 +1559,38 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithPrefixedUsersPrefetchesRequestPreferences() {
+
+    mock.setMockJsonContent("mock_prefixed_more_user_update.json");
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(List.of(generateUser("21222324", "User2", "Update2", null),
+          generateUser("31323334", "User3", "Update3", null)))
+      .withTotalRecords(2)
+      .withSourceType("test2");
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(2))
+      .body(UPDATED_RECORDS, equalTo(2))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+
+    // the request preferences of both users are fetched with one request
+    assertThat(mock.getRequestCount("GET", "/request-preference-storage/request-preference?query="
+        + "userId%3D%3D%28a3436a5f-707a-4005-804d-303220dd035b+or+b1f1f0d2-4c7e-4b5e-9a55-3f4f2f6c8e01%29&limit=2"), is(1));
+    assertThat(mock.getRequestCount("GET",
+        "/request-preference-storage/request-preference?query=userId==a3436a5f-707a-4005-804d-303220dd035b"), is(0));
+  }
+
   @Test
   public void testImportWithDeactivateInSourceType() throws IOException {
 
@@ -999,9 +1650,45 @@ public class UserImportAPITest {
       .body(UPDATED_RECORDS, equalTo(0))
       .body(FAILED_RECORDS, equalTo(0))
       .body(FAILED_USERS, hasSize(0))
+      .body("deactivatedRecords", equalTo(0))
+      .body("failedDeactivations", hasSize(1))
+      .body("failedDeactivations[0].externalSystemId", equalTo("user2_old2"))
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithCompactUserIndexAndDeactivationError() {
+
+    mock.setMockJsonContent("mock_deactivate_in_source_type_with_deactivation_error_compact.json");
+    System.setProperty(ImportConfig.COMPACT_USER_INDEX, "true");
+    try {
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(List.of(generateUser("2526272829", "User2", "Deactivate2", null)))
+        .withTotalRecords(1)
+        .withDeactivateMissingUsers(true)
+        .withSourceType("test3");
+
+      // the index keeps the username of the user that fails to be deactivated
+      given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT)
+        .then()
+        .body(MESSAGE, equalTo("Deactivated missing users."))
+        .body(CREATED_RECORDS, equalTo(1))
+        .body("deactivatedRecords", equalTo(0))
+        .body("failedDeactivations", hasSize(1))
+        .body("failedDeactivations[0].externalSystemId", equalTo("user2_old2"))
+        .body("failedDeactivations[0].username", equalTo("user2_old2"))
+        .statusCode(200);
+    } finally {
+      System.clearProperty(ImportConfig.COMPACT_USER_INDEX);
+    }
+  }
+
   @Test
   public void testImportWithNoNeedToDeactivate() throws IOException {
 
@@ -2053,6 +2740,343 @@ public class UserImportAPITest {
       .statusCode(500);
   }
 
+  @Test
+  public void testImportWithStreamedResults() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+
+    String body = given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT + "?streamResults=true")
+      .then()
+      .statusCode(200)
+      .contentType("application/x-ndjson")
+      .extract().asString();
+
+    String[] lines = body.split("\n");
+    assertThat(lines.length, is(2));
+    JsonObject userResult = new JsonObject(lines[0]);
+    assertThat(userResult.getString(EXTERNAL_SYSTEM_ID), is("amy_cabble"));
+    assertThat(userResult.getString("status"), is("CREATED"));
+    JsonObject summary = new JsonObject(lines[1]).getJsonObject("summary");
+    assertThat(summary.getString(MESSAGE), is(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY));
+    assertThat(summary.getInteger(CREATED_RECORDS), is(1));
+    assertThat(summary.getInteger(TOTAL_RECORDS), is(1));
+  }
+
+  @Test
+  public void testStreamedImportWithOptionsFromQuery() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    // without the query parameter all users would be listed to deactivate the missing ones
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(List.of(generateUser("1234567", "Amy", "Cabble", null)))
+      .withTotalRecords(1)
+      .withDeactivateMissingUsers(true);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(OCTET_STREAM_CONTENT_TYPE_HEADER)
+      .body(JsonObject.mapFrom(collection).encode())
+      .post(USER_IMPORT + "/stream?deactivateMissingUsers=false")
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+
+    assertThat(StreamedUserImport.size(), is(0));
+  }
+
+  @Test
+  public void testStreamedImportWithStreamedResults() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(List.of(generateUser("1234567", "Amy", "Cabble", null)))
+      .withTotalRecords(1);
+
+    String body = given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(OCTET_STREAM_CONTENT_TYPE_HEADER)
+      .body(JsonObject.mapFrom(collection).encode())
+      .post(USER_IMPORT + "/stream?streamResults=true")
+      .then()
+      .statusCode(200)
+      .contentType("application/x-ndjson")
+      .extract().asString();
+
+    String[] lines = body.split("\n");
+    assertThat(lines.length, is(2));
+    assertThat(new JsonObject(lines[0]).getString("status"), is("CREATED"));
+    JsonObject summary = new JsonObject(lines[1]).getJsonObject("summary");
+    assertThat(summary.getInteger(CREATED_RECORDS), is(1));
+    assertThat(summary.getInteger(TOTAL_RECORDS), is(1));
+  }
+
+  @Test
+  public void testStreamedImportPausedAtBufferSize() throws Exception {
+
+    mock.setMockJsonContent("mock_multiple_user_creation.json");
+    // fewer users than a partition pause the request, it is resumed for the partition to fill up
+    System.setProperty(ImportConfig.STREAM_BUFFER_SIZE, "2");
+    try {
+      HttpClientRequest request = openStream(USER_IMPORT + "/stream");
+      request.write("{\"totalRecords\": 10, \"users\": [");
+      for (int i = 1; i <= 10; i++) {
+        User user = generateUser(String.valueOf(i), i + "1", i + "2", null);
+        request.write((i > 1 ? "," : "") + JsonObject.mapFrom(user).encode());
+      }
+      request.end("]}");
+      HttpClientResponse response = await(request.response());
+      JsonObject body = await(response.body()).toJsonObject();
+
+      assertThat(response.statusCode(), is(200));
+      assertThat(body.getInteger(CREATED_RECORDS), is(10));
+      assertThat(body.getInteger(FAILED_RECORDS), is(0));
+    } finally {
+      System.clearProperty(ImportConfig.STREAM_BUFFER_SIZE);
+    }
+  }
+
+  @Test
+  public void testStreamedImportAborted() throws Exception {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    HttpClientRequest request = openStream(USER_IMPORT + "/stream");
+    User user = generateUser("1234567", "Amy", "Cabble", null);
+    await(request.write("{\"totalRecords\": 1, \"users\": [" + JsonObject.mapFrom(user).encode()));
+    awaitCondition(() -> StreamedUserImport.size() == 1);
+    request.reset();
+
+    // the import is removed and its user is not created
+    awaitCondition(() -> StreamedUserImport.size() == 0);
+    assertThat(mock.getRequestCount("POST", "/perms/users"), is(0));
+    assertThat(mock.getRequestCount("POST", "/users"), is(0));
+  }
+
+  @Test
+  public void testNdjsonImportWithOptionsLine() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    String body = "{\"importMode\": \"createOnly\"}\n"
+      + JsonObject.mapFrom(generateUser("1234567", "Amy", "Cabble", null)).encode() + "\n";
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(NDJSON_CONTENT_TYPE_HEADER)
+      .body(body)
+      .post(USER_IMPORT + "/ndjson")
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+
+    // the create only mode of the options line skips the search
+    assertThat(mock.getRequestCount("GET", "/users?query=externalSystemId%3D%3D%28%22amy_cabble%22%29"
+        + "&limit=2&offset=0&orderBy=externalSystemId&order=asc"), is(0));
+    assertThat(mock.getRequestCount("POST", "/users"), is(1));
+  }
+
+  @Test
+  public void testNdjsonImportWithOptionsFromQuery() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    // without the query parameter all users would be listed to deactivate the missing ones
+    String body = "{\"deactivateMissingUsers\": true}\n"
+      + JsonObject.mapFrom(generateUser("1234567", "Amy", "Cabble", null)).encode() + "\n";
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(NDJSON_CONTENT_TYPE_HEADER)
+      .body(body)
+      .post(USER_IMPORT + "/ndjson?deactivateMissingUsers=false")
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+  }
+
+  @Test
+  public void testNdjsonImportWithoutOptionsLine() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    // a malformed line and a line without username fail, the other lines are imported
+    String body = JsonObject.mapFrom(generateUser("1234567", "Amy", "Cabble", null)).encode() + "\n"
+      + "{\"username\": \n"
+      + "{\"externalSystemId\": \"no_username\", \"active\": true}\n";
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(NDJSON_CONTENT_TYPE_HEADER)
+      .body(body)
+      .post(USER_IMPORT + "/ndjson")
+      .then()
+      .body(TOTAL_RECORDS, equalTo(3))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(2))
+      .body(FAILED_USERS + "[0]." + USER_ERROR_MESSAGE, startsWith("Line 2: "))
+      .body(FAILED_USERS + "[1]." + EXTERNAL_SYSTEM_ID, equalTo("no_username"))
+      .body(FAILED_USERS + "[1]." + USER_ERROR_MESSAGE, equalTo("username must not be null"))
+      .statusCode(200);
+
+    assertThat(mock.getRequestCount("POST", "/users"), is(1));
+  }
+
+  @Test
+  public void testImportJobWithUserCreation() throws InterruptedException {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+
+    String id = given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT + "/jobs")
+      .then()
+      .statusCode(202)
+      .body(TOTAL_RECORDS, equalTo(1))
+      .extract().path("id");
+
+    String status = "IN_PROGRESS";
+    for (int i = 0; i < 100 && "IN_PROGRESS".equals(status); i++) {
+      Thread.sleep(100);
+      status = given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .get(USER_IMPORT + "/jobs/" + id)
+        .then()
+        .statusCode(200)
+        .extract().path("status");
+    }
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .get(USER_IMPORT + "/jobs/" + id)
+      .then()
+      .statusCode(200)
+      .body("status", equalTo("COMPLETED"))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body("remainingRecords", equalTo(0))
+      .body("result." + MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body("result." + CREATED_RECORDS, equalTo(1));
+  }
+
+  @Test
+  public void testImportJobExpired() throws InterruptedException {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+    System.setProperty(ImportConfig.JOB_RETENTION_MINUTES, "0");
+    try {
+      UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(List.of(generateUser("1234567", "Amy", "Cabble", null)))
+        .withTotalRecords(1);
+
+      String id = given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+        .header(JSON_CONTENT_TYPE_HEADER)
+        .body(collection)
+        .post(USER_IMPORT + "/jobs")
+        .then()
+        .statusCode(202)
+        .extract().path("id");
+
+      // the finished job is removed at once
+      int statusCode = 200;
+      for (int i = 0; i < 100 && statusCode == 200; i++) {
+        Thread.sleep(100);
+        statusCode = given()
+          .header(TENANT_HEADER)
+          .header(TOKEN_HEADER)
+          .get(USER_IMPORT + "/jobs/" + id)
+          .then()
+          .extract().statusCode();
+      }
+
+      assertThat(statusCode, is(404));
+      assertThat(mock.getRequestCount("POST", "/users"), is(1));
+    } finally {
+      System.clearProperty(ImportConfig.JOB_RETENTION_MINUTES);
+    }
+  }
+
+  @Test
+  public void testImportJobNotFound() {
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .get(USER_IMPORT + "/jobs/" + UUID.randomUUID())
+      .then()
+      .statusCode(404);
+  }
+
+  /**
+   * Open a chunked request whose body is written by the caller.
+   */
+  private HttpClientRequest openStream(String uri) throws Exception {
+    return await(vertx.createHttpClient().request(HttpMethod.POST, PORT, "localhost", uri))
+      .setChunked(true)
+      .putHeader(TENANT_HEADER.getName(), TENANT_HEADER.getValue())
+      .putHeader(TOKEN_HEADER.getName(), TOKEN_HEADER.getValue())
+      .putHeader(XOkapiHeaders.URL, getOkapiUrl())
+      .putHeader(OCTET_STREAM_CONTENT_TYPE_HEADER.getName(), OCTET_STREAM_CONTENT_TYPE_HEADER.getValue());
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(condition.getAsBoolean(), is(true));
+  }
+
   private String getOkapiUrl() {
     return HOST + ":" + MOCK_PORT;
   }
@@ -3,14 +3,32 @@ package org.folio.service;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 import io.vertx.core.json.JsonObject;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.folio.model.UserImportData;
 import org.folio.model.UserSystemData;
+import org.folio.model.exception.CustomFieldMappingFailedException;
+import org.folio.model.exception.DepartmentMappingFailedException;
 import org.folio.model.exception.PatronGroupMappingFailedException;
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.CustomField;
+import org.folio.rest.jaxrs.model.CustomFields;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.SelectField;
+import org.folio.rest.jaxrs.model.SelectFieldOption;
+import org.folio.rest.jaxrs.model.SelectFieldOptions;
 import org.folio.rest.jaxrs.model.User;
 import org.folio.rest.jaxrs.model.UserdataimportCollection;
 import org.junit.Test;
@@ -41,6 +59,56 @@ public class UserDataProcessingServiceTest {
     UserDataProcessingService.setPatronGroup(user, userImportData);
   }
 
+  @Test
+  public void updateUserDataDepartmentsAndCustomFields() {
+    var user = new User()
+        .withDepartments(Set.of("Math"))
+        .withCustomFields(new CustomFields()
+            .withAdditionalProperty("color", "red")
+            .withAdditionalProperty("tags", List.of("a", "b"))
+            .withAdditionalProperty("note", "free text"));
+    newService().updateUserData(user, userImportDataWithDepartmentsAndCustomFields());
+    assertThat(user.getDepartments(), is(Set.of("d1")));
+    assertThat(user.getCustomFields().getAdditionalProperties(),
+        is(Map.of("color", "opt_1", "tags", List.of("opt_1", "opt_2"), "note", "free text")));
+  }
+
+  @Test(expected = DepartmentMappingFailedException.class)
+  public void updateUserDataUnknownDepartment() {
+    var user = new User().withDepartments(Set.of("MATH"));
+    newService().updateUserData(user, userImportDataWithDepartmentsAndCustomFields());
+  }
+
+  @Test(expected = CustomFieldMappingFailedException.class)
+  public void updateUserDataUnknownOption() {
+    var user = new User().withCustomFields(new CustomFields().withAdditionalProperty("color", "blue"));
+    newService().updateUserData(user, userImportDataWithDepartmentsAndCustomFields());
+  }
+
+  private static UserDataProcessingService newService() {
+    return new UserDataProcessingService();
+  }
+
+  private static UserImportData userImportDataWithDepartmentsAndCustomFields() {
+    var options = new SelectField().withOptions(new SelectFieldOptions().withValues(List.of(
+        new SelectFieldOption().withId("opt_0").withValue("green"),
+        new SelectFieldOption().withId("opt_1").withValue("red"))));
+    var tagOptions = new SelectField().withOptions(new SelectFieldOptions().withValues(List.of(
+        new SelectFieldOption().withId("opt_1").withValue("a"),
+        new SelectFieldOption().withId("opt_2").withValue("b"))));
+    return new UserImportData(new UserdataimportCollection())
+        .withSystemData(UserSystemData.builder()
+            .departments(Set.of(
+                new Department().withId("d1").withName("Math").withCode("MATH"),
+                new Department().withId("d2").withName("Physics").withCode("PHYS")))
+            .customFields(Set.of(
+                new CustomField().withRefId("color").withType(CustomField.Type.RADIO_BUTTON).withSelectField(options),
+                new CustomField().withRefId("tags").withType(CustomField.Type.MULTI_SELECT_DROPDOWN)
+                    .withSelectField(tagOptions),
+                new CustomField().withRefId("note").withType(CustomField.Type.TEXTBOX_SHORT)))
+            .build());
+  }
+
   @Test
   public void mergeUserDefault() {
     assertMergeUser(new User(), new User(), new User());
@@ -86,6 +154,77 @@ public class UserDataProcessingServiceTest {
         new User().withProxyFor(List.of("x", "y")).withDepartments(Set.of("d1", "d2")));
   }
 
+  @Test
+  public void mergeUserAddressesByType() {
+    var home = new Address().withAddressTypeId("home").withCity("A");
+    var work = new Address().withAddressTypeId("work").withCity("B");
+    var newHome = new Address().withAddressTypeId("home").withCity("C");
+    var other = new Address().withAddressTypeId("other").withCity("D");
+    var user = new User().withPersonal(new Personal().withLastName("new").withAddresses(List.of(newHome, other)));
+    var existingUser = new User().withId("foo")
+        .withPersonal(new Personal().withLastName("old").withPreferredFirstName("Bob").withAddresses(List.of(home, work)));
+    var merged = UserDataProcessingService.updateExistingUserWithIncomingFields(user, existingUser);
+    assertThat(merged.getId(), is("foo"));
+    assertThat(merged.getPersonal().getLastName(), is("new"));
+    assertThat(merged.getPersonal().getPreferredFirstName(), is("Bob"));
+    assertThat(merged.getPersonal().getAddresses(), is(List.of(newHome, work, other)));
+  }
+
+  @Test
+  public void mergeUserWithoutIncomingPersonal() {
+    var existingPersonal = new Personal().withLastName("old").withAddresses(List.of(new Address().withCity("A")));
+    var merged = UserDataProcessingService.updateExistingUserWithIncomingFields(
+        new User().withBarcode("123"), new User().withPersonal(existingPersonal));
+    assertThat(merged.getBarcode(), is("123"));
+    assertThat(merged.getPersonal(), is(existingPersonal));
+  }
+
+  /**
+   * Fails if a property is added to the user schema but not to mergeUser.
+   */
+  @Test
+  public void mergeUserCoversAllProperties() throws Exception {
+    for (PropertyDescriptor property : Introspector.getBeanInfo(User.class, Object.class).getPropertyDescriptors()) {
+      if (property.getReadMethod() == null || property.getWriteMethod() == null) {
+        continue;
+      }
+      var existingUser = new User();
+      var value = sampleValue(property.getPropertyType(), property.getReadMethod().invoke(existingUser));
+      var user = new User();
+      property.getWriteMethod().invoke(user, value);
+      var merged = UserDataProcessingService.updateExistingUserWithIncomingFields(user, existingUser);
+      assertThat(property.getName(), property.getReadMethod().invoke(merged), is(sameInstance(value)));
+    }
+  }
+
+  /**
+   * A value of the type that is not the same instance as the default value.
+   */
+  private static Object sampleValue(Class<?> type, Object defaultValue) throws ReflectiveOperationException {
+    if (type == String.class) {
+      return String.valueOf(new StringBuilder("value"));
+    }
+    if (type == Boolean.class) {
+      return Boolean.TRUE.equals(defaultValue) ? Boolean.FALSE : Boolean.TRUE;
+    }
+    if (type == Date.class) {
+      return new Date(0);
+    }
+    if (type == List.class) {
+      return new ArrayList<>();
+    }
+    if (type == Set.class) {
+      return new LinkedHashSet<>();
+    }
+    if (type == Map.class) {
+      return new HashMap<>();
+    }
+    if (type.isEnum()) {
+      return Arrays.stream(type.getEnumConstants()).filter(constant -> constant != defaultValue).findFirst().orElseThrow();
+    }
+    return type.getDeclaredConstructor().newInstance();
+  }
+
   private static void assertMergeUser(User user, User existingUser, User expectedUser) {
     var actual = JsonObject.mapFrom(UserDataProcessingService.updateExistingUserWithIncomingFields(user, existingUser));
     var expected = JsonObject.mapFrom(expectedUser);
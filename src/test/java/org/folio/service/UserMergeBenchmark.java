@@ -0,0 +1,128 @@
+package org.folio.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.commons.lang3.StringUtils;
+
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.CustomFields;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Per-user cost of merging an incoming user into an existing user for
+ * updateOnlyPresentFields, {@link UserDataProcessingService#updateExistingUserWithIncomingFields}
+ * compared with the former merge through JSON.
+ *
+ * <p>Run with {@code mvn test-compile} and the main method of this class, it runs with the
+ * gc profiler so that the allocations per user are reported as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserMergeBenchmark {
+
+  @Benchmark
+  public User typedMerge() {
+    return UserDataProcessingService.updateExistingUserWithIncomingFields(incomingUser(), existingUser());
+  }
+
+  @Benchmark
+  public User jsonMerge() {
+    return jsonMerge(incomingUser(), existingUser());
+  }
+
+  private static User incomingUser() {
+    return new User()
+        .withExternalSystemId("123")
+        .withUsername("jdoe")
+        .withActive(true)
+        .withPatronGroup("3684a786-6671-4268-8ed0-9db82ebca60b")
+        .withDepartments(Set.of("e1a4ab6d-6ae6-4e5f-a0e2-4ee2bfbc0f08"))
+        .withCustomFields(new CustomFields().withAdditionalProperty("color", "opt_1"))
+        .withPersonal(new Personal()
+            .withLastName("Doe")
+            .withFirstName("John")
+            .withEmail("jdoe@example.com")
+            .withAddresses(List.of(new Address().withAddressTypeId("home").withCity("Springfield"))));
+  }
+
+  private static User existingUser() {
+    return new User()
+        .withId("9a0b8d4c-6f2f-4a5e-9b3d-2b6f1f6a1c11")
+        .withExternalSystemId("123")
+        .withUsername("jdoe")
+        .withBarcode("4711")
+        .withActive(false)
+        .withPersonal(new Personal()
+            .withLastName("Doe")
+            .withFirstName("Jon")
+            .withPreferredFirstName("Johnny")
+            .withEmail("jon@example.com")
+            .withAddresses(List.of(
+                new Address().withAddressTypeId("home").withCity("Shelbyville"),
+                new Address().withAddressTypeId("work").withCity("Capital City"))));
+  }
+
+  /**
+   * The merge through JSON that updateExistingUserWithIncomingFields used before.
+   */
+  static User jsonMerge(User user, User existingUser) {
+    JsonObject current = JsonObject.mapFrom(user);
+    JsonObject existing = JsonObject.mapFrom(existingUser);
+    List<Address> addresses = null;
+    existing.mergeIn(current);
+    User response = existing.mapTo(User.class);
+    if (existingUser.getPersonal() != null) {
+      List<Address> currentAddresses = null;
+      List<Address> existingAddresses = existingUser.getPersonal().getAddresses();
+      if (user.getPersonal() != null) {
+        currentAddresses = user.getPersonal().getAddresses();
+      }
+      if (currentAddresses == null) {
+        addresses = existingAddresses;
+      } else {
+        Map<String, Address> addressMap = new HashMap<>();
+        existingAddresses.forEach(address -> addressMap.put(address.getAddressTypeId(), address));
+        currentAddresses.forEach(address -> addressMap.put(address.getAddressTypeId(), address));
+        addresses = new ArrayList<>(addressMap.values());
+      }
+    }
+    if (user.getPersonal() != null && StringUtils.isBlank(user.getPersonal().getPreferredFirstName())) {
+      response.getPersonal().setPreferredFirstName(existingUser.getPersonal().getPreferredFirstName());
+    }
+    if (addresses != null) {
+      response.getPersonal().setAddresses(addresses);
+    }
+    return response;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(UserMergeBenchmark.class.getSimpleName())
+        .addProfiler("gc")
+        .build())
+        .run();
+  }
+}
@@ -0,0 +1,91 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+
+  @Test
+  public void growsWhileFast() {
+    var sizer = new AdaptiveBatchSizer(4, 12, 10, 1000);
+    sizer.record(100, 10, false);
+    assertThat(sizer.getBatchSize(), is(12));
+    sizer.record(100, 12, false);
+    assertThat(sizer.getBatchSize(), is(12));
+  }
+
+  @Test
+  public void shrinksWhenSlow() {
+    var sizer = new AdaptiveBatchSizer(4, 100, 40, 1000);
+    sizer.record(3000, 40, false);
+    assertThat(sizer.getBatchSize(), is(30));
+    sizer.record(3000, 30, false);
+    assertThat(sizer.getBatchSize(), is(22));
+  }
+
+  @Test
+  public void keepsSizeWithinTarget() {
+    var sizer = new AdaptiveBatchSizer(4, 100, 40, 1000);
+    sizer.record(700, 40, false);
+    assertThat(sizer.getBatchSize(), is(40));
+  }
+
+  @Test
+  public void constantLatencyKeepsSize() {
+    var sizer = new AdaptiveBatchSizer(4, 100, 40, 1000);
+    for (int i = 0; i < 50; i++) {
+      sizer.record(700, sizer.getBatchSize(), false);
+    }
+    assertThat(sizer.getBatchSize(), is(40));
+  }
+
+  @Test
+  public void latencyPerItemSettlesSize() {
+    var sizer = new AdaptiveBatchSizer(4, 100, 10, 1000);
+    // 20 ms per item: grows while below 500 ms and stops at 26 items
+    for (int i = 0; i < 50; i++) {
+      sizer.record(20L * sizer.getBatchSize(), sizer.getBatchSize(), false);
+    }
+    assertThat(sizer.getBatchSize(), is(26));
+  }
+
+  @Test
+  public void batchOfOlderSizeIsNormalized() {
+    var sizer = new AdaptiveBatchSizer(4, 100, 40, 1000);
+    sizer.record(600, 40, false);
+    // a batch of 10 started before, its latency per item matches the size of 40
+    sizer.record(150, 10, false);
+    assertThat(sizer.getBatchSize(), is(40));
+  }
+
+  @Test
+  public void halvesOnError() {
+    var sizer = new AdaptiveBatchSizer(5, 100, 40, 1000);
+    sizer.record(10, 40, true);
+    assertThat(sizer.getBatchSize(), is(20));
+    sizer.record(10, 20, true);
+    sizer.record(10, 10, true);
+    assertThat(sizer.getBatchSize(), is(5));
+    assertThat(sizer.getErrorRate(), is(1.0));
+  }
+
+  @Test
+  public void fixed() {
+    var sizer = AdaptiveBatchSizer.fixed(10);
+    sizer.record(1, 10, false);
+    sizer.record(100000, 10, true);
+    assertThat(sizer.getBatchSize(), is(10));
+  }
+
+  @Test
+  public void initialClamped() {
+    assertThat(new AdaptiveBatchSizer(20, 30, 10, 1000).getBatchSize(), is(20));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidBounds() {
+    new AdaptiveBatchSizer(10, 5, 10, 1000);
+  }
+}
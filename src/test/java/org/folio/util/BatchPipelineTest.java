@@ -0,0 +1,143 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.Test;
+
+public class BatchPipelineTest {
+
+  @Test
+  public void keepsAtMostMaxInFlightBatchesRunning() {
+    List<Promise<Integer>> running = new ArrayList<>();
+    BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(2, 3, batch -> {
+      Promise<Integer> promise = Promise.promise();
+      running.add(promise);
+      return promise.future().map(x -> batch.stream().mapToInt(Integer::intValue).sum());
+    });
+    pipeline.addAll(IntStream.rangeClosed(1, 10).boxed().toList());
+    Future<List<Integer>> result = pipeline.end();
+
+    assertThat(running.size(), is(2));
+    running.get(1).complete(0);
+    assertThat(running.size(), is(3));
+    assertThat(pipeline.getInFlight(), is(2));
+    running.get(0).complete(0);
+    running.get(2).complete(0);
+    assertThat(running.size(), is(4));
+    assertThat(result.isComplete(), is(false));
+    running.get(3).complete(0);
+
+    assertThat(result.succeeded(), is(true));
+    assertThat(result.result(), contains(6, 15, 24, 10));
+    assertThat(pipeline.getBatchCount(), is(4));
+    assertThat(pipeline.getPeakInFlight(), is(2));
+  }
+
+  @Test
+  public void limitsItemsInFlightAndFollowsBatchSize() {
+    List<Promise<Integer>> running = new ArrayList<>();
+    List<List<Integer>> batches = new ArrayList<>();
+    int[] size = {2};
+    BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(10, 5, () -> size[0], batch -> {
+      Promise<Integer> promise = Promise.promise();
+      running.add(promise);
+      batches.add(batch);
+      return promise.future();
+    });
+    pipeline.addAll(IntStream.rangeClosed(1, 9).boxed().toList());
+    Future<List<Integer>> result = pipeline.end();
+
+    assertThat(batches, contains(List.of(1, 2), List.of(3, 4)));
+    size[0] = 4;
+    running.get(0).complete(0);
+    // 2 + 4 items would exceed the limit of 5 items in flight
+    assertThat(batches.size(), is(2));
+    running.get(1).complete(0);
+    assertThat(batches.get(2), is(List.of(5, 6, 7, 8)));
+    running.get(2).complete(0);
+    assertThat(batches.get(3), is(List.of(9)));
+    running.get(3).complete(0);
+    assertThat(result.succeeded(), is(true));
+  }
+
+  @Test
+  public void waitsForFullBatchUntilEnd() {
+    List<List<String>> batches = new ArrayList<>();
+    BatchPipeline<String, Integer> pipeline = new BatchPipeline<>(5, 2, batch -> {
+      batches.add(batch);
+      return Future.succeededFuture(batch.size());
+    });
+    pipeline.add("a");
+    assertThat(batches.size(), is(0));
+    pipeline.add("b");
+    pipeline.add("c");
+    assertThat(batches.size(), is(1));
+    Future<List<Integer>> result = pipeline.end();
+    assertThat(result.result(), contains(2, 1));
+  }
+
+  @Test
+  public void pauseStopsStartingBatches() {
+    List<Promise<Integer>> running = new ArrayList<>();
+    BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(1, 2, batch -> {
+      Promise<Integer> promise = Promise.promise();
+      running.add(promise);
+      return promise.future();
+    });
+    pipeline.addAll(List.of(1, 2, 3, 4));
+    Future<List<Integer>> result = pipeline.end();
+
+    pipeline.pause();
+    running.get(0).complete(0);
+    assertThat(running.size(), is(1));
+    assertThat(pipeline.getPendingCount(), is(2));
+    assertThat(result.isComplete(), is(false));
+    pipeline.resume();
+    assertThat(running.size(), is(2));
+    running.get(1).complete(0);
+    assertThat(result.succeeded(), is(true));
+  }
+
+  @Test
+  public void emptyPipeline() {
+    BatchPipeline<String, Integer> pipeline = new BatchPipeline<>(1, 1, batch -> Future.succeededFuture(1));
+    assertThat(pipeline.end().result().isEmpty(), is(true));
+  }
+
+  @Test
+  public void stopsDispatchingAfterFailure() {
+    List<List<Integer>> batches = new ArrayList<>();
+    BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(1, 1, batch -> {
+      batches.add(batch);
+      return Future.failedFuture("boom");
+    });
+    pipeline.addAll(List.of(1, 2, 3));
+    Future<List<Integer>> result = pipeline.end();
+    assertThat(result.failed(), is(true));
+    assertThat(result.cause().getMessage(), is("boom"));
+    assertThat(batches.size(), is(1));
+  }
+
+  @Test
+  public void processorThrowing() {
+    BatchPipeline<Integer, Integer> pipeline = new BatchPipeline<>(1, 1, batch -> {
+      throw new IllegalStateException("thrown");
+    });
+    pipeline.add(1);
+    Future<List<Integer>> result = pipeline.end();
+    assertThat(result.cause().getMessage(), is("thrown"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidMaxInFlight() {
+    new BatchPipeline<Integer, Integer>(0, 1, batch -> Future.succeededFuture());
+  }
+}
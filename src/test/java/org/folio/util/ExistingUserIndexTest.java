@@ -0,0 +1,107 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class ExistingUserIndexTest {
+
+  private static List<String> activeIds(ExistingUserIndex index) {
+    List<String> ids = new ArrayList<>();
+    index.forEachActive((externalSystemId, id, username) -> ids.add(id));
+    return ids;
+  }
+
+  @Test
+  public void putAndRemove() {
+    ExistingUserIndex index = new ExistingUserIndex();
+    String id1 = UUID.randomUUID().toString();
+    String id2 = UUID.randomUUID().toString();
+    String id3 = UUID.randomUUID().toString();
+    index.put("a", id1, "ua", true);
+    index.put("b", id2, "ub", false);
+    index.put("c", id3, null, true);
+
+    assertThat(index.size(), is(3));
+    assertThat(activeIds(index), containsInAnyOrder(id1, id3));
+
+    assertThat(index.remove("a"), is(true));
+    assertThat(index.remove("a"), is(false));
+    assertThat(index.remove("unknown"), is(false));
+    assertThat(index.size(), is(2));
+    assertThat(activeIds(index), containsInAnyOrder(id3));
+  }
+
+  @Test
+  public void putReplaces() {
+    ExistingUserIndex index = new ExistingUserIndex();
+    String id1 = UUID.randomUUID().toString();
+    String id2 = UUID.randomUUID().toString();
+    index.put("ä", id1, "old", false);
+    index.remove("ä");
+    index.put("ä", id2, "new", true);
+
+    assertThat(index.size(), is(1));
+    assertThat(activeIds(index), containsInAnyOrder(id2));
+  }
+
+  @Test
+  public void manyUsers() {
+    ExistingUserIndex index = new ExistingUserIndex();
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      String id = UUID.randomUUID().toString();
+      ids.add(id);
+      index.put("user" + i, id, "u" + i, true);
+    }
+    for (int i = 0; i < 10000; i += 2) {
+      assertThat(index.remove("user" + i), is(true));
+    }
+
+    assertThat(index.size(), is(5000));
+    List<String> expected = new ArrayList<>();
+    for (int i = 1; i < 10000; i += 2) {
+      expected.add(ids.get(i));
+    }
+    assertThat(activeIds(index), is(expected));
+  }
+
+  @Test
+  public void externalSystemIdOfActiveUser() {
+    ExistingUserIndex index = new ExistingUserIndex();
+    String id = UUID.randomUUID().toString();
+    index.put("src_ä1", id, "ä1", true);
+    List<String> externalSystemIds = new ArrayList<>();
+    index.forEachActive((externalSystemId, userId, username) -> externalSystemIds.add(externalSystemId + " " + userId));
+
+    assertThat(externalSystemIds, is(List.of("src_ä1 " + id)));
+  }
+
+  @Test
+  public void usernameOfActiveUser() {
+    ExistingUserIndex index = new ExistingUserIndex();
+    List<String> usernames = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      index.put("user" + i, UUID.randomUUID().toString(), i == 0 ? null : "ü" + i, true);
+    }
+    index.put("user1", UUID.randomUUID().toString(), "renamed", true);
+    index.forEachActive((externalSystemId, id, username) -> usernames.add(username));
+
+    assertThat(usernames.size(), is(100));
+    assertThat(usernames.get(0), is(nullValue()));
+    assertThat(usernames.get(1), is("renamed"));
+    assertThat(usernames.get(99), is("ü99"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void idMustBeUuid() {
+    new ExistingUserIndex().put("a", "not a uuid", "a", true);
+  }
+}
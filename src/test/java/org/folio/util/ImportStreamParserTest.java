@@ -0,0 +1,114 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.Test;
+
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+public class ImportStreamParserTest {
+
+  private final List<UserdataimportCollection> headers = new ArrayList<>();
+  private final List<User> users = new ArrayList<>();
+  private final List<String> invalidUsers = new ArrayList<>();
+  private final List<String> trailingFields = new ArrayList<>();
+
+  private final UserStreamParser.Listener listener = new UserStreamParser.Listener() {
+    @Override
+    public void header(UserdataimportCollection header) {
+      headers.add(header);
+    }
+
+    @Override
+    public void user(User user) {
+      assertThat(headers.size(), is(1));
+      users.add(user);
+    }
+
+    @Override
+    public void invalidUser(String externalSystemId, String username, String errorMessage) {
+      invalidUsers.add(externalSystemId + " " + errorMessage);
+    }
+
+    @Override
+    public void trailingField(String name) {
+      trailingFields.add(name);
+    }
+  };
+
+  private void parseBytewise(String json) throws IOException {
+    ImportStreamParser parser = new ImportStreamParser(listener);
+    for (byte b : json.getBytes(StandardCharsets.UTF_8)) {
+      parser.feed(new byte[] { b });
+    }
+    parser.end();
+  }
+
+  @Test
+  public void headerBeforeUsers() throws IOException {
+    parseBytewise("{\"sourceType\": \"test\", \"deactivateMissingUsers\": true,"
+        + " \"included\": {\"departments\": [{\"name\": \"d\", \"code\": \"c\"}]},"
+        + " \"users\": [{\"username\": \"a\", \"externalSystemId\": \"1\", \"personal\": {\"lastName\": \"A\"}},"
+        + " {\"username\": \"b\", \"externalSystemId\": \"2\", \"departments\": [\"d\"]}],"
+        + " \"totalRecords\": 2}");
+
+    assertThat(headers.size(), is(1));
+    assertThat(headers.get(0).getSourceType(), is("test"));
+    assertThat(headers.get(0).getDeactivateMissingUsers(), is(true));
+    assertThat(headers.get(0).getIncluded().getDepartments().size(), is(1));
+    assertThat(users.stream().map(User::getUsername).toList(), contains("a", "b"));
+    assertThat(users.get(0).getPersonal().getLastName(), is("A"));
+    assertThat(trailingFields, contains("totalRecords"));
+  }
+
+  @Test
+  public void noUsers() throws IOException {
+    parseBytewise("{\"totalRecords\": 0, \"sourceType\": \"x\"}");
+
+    assertThat(headers.size(), is(1));
+    assertThat(headers.get(0).getSourceType(), is("x"));
+    assertThat(users.isEmpty(), is(true));
+  }
+
+  @Test
+  public void invalidUsersAreReported() throws IOException {
+    parseBytewise("{\"users\": [{\"username\": \"a\"}, {\"externalSystemId\": \"2\", \"unknown\": 1},"
+        + " {\"username\": \"c\", \"externalSystemId\": \"3\"}]}");
+
+    assertThat(users.stream().map(User::getUsername).toList(), contains("c"));
+    assertThat(invalidUsers.size(), is(2));
+    assertThat(invalidUsers.get(0), is("null externalSystemId must not be null"));
+    assertThat(invalidUsers.get(1), containsString("unknown"));
+    assertThat(headers.get(0).getSourceType(), is(nullValue()));
+  }
+
+  @Test
+  public void truncatedDocument() throws IOException {
+    ImportStreamParser parser = new ImportStreamParser(listener);
+    parser.feed("{\"users\": [{\"username\": \"a\", \"externalSystemId\": \"1\"}, {\"user"
+        .getBytes(StandardCharsets.UTF_8));
+    assertThat(users.size(), is(1));
+    try {
+      parser.end();
+      throw new AssertionError("expected JsonParseException");
+    } catch (JsonParseException e) {
+      assertThat(users.size(), is(1));
+    }
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void usersNotAnArray() throws IOException {
+    parseBytewise("{\"users\": {}}");
+  }
+}
@@ -0,0 +1,42 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.vertx.core.json.JsonObject;
+
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.User;
+import org.junit.Test;
+
+public class JsonBufferWriterTest {
+
+  @Test
+  public void emptyPreferredEmailCommunicationIsOmitted() {
+    var user = new User().withId("1").withPersonal(new Personal().withLastName("Ä"));
+    var json = new JsonObject(JsonBufferWriter.toBuffer(user));
+    assertThat(json.containsKey("preferredEmailCommunication"), is(false));
+    assertThat(json.getString("id"), is("1"));
+    assertThat(json.getJsonObject("personal").getString("lastName"), is("Ä"));
+  }
+
+  @Test
+  public void preferredEmailCommunicationIsKept() {
+    Set<User.PreferredEmailCommunication> preferred = new LinkedHashSet<>();
+    preferred.add(User.PreferredEmailCommunication.SUPPORT);
+    var user = new User().withId("1").withPreferredEmailCommunication(preferred);
+    var json = new JsonObject(JsonBufferWriter.toBuffer(user));
+    assertThat(json.getJsonArray("preferredEmailCommunication").getList(), is(List.of("Support")));
+  }
+
+  @Test
+  public void map() {
+    var json = new JsonObject(JsonBufferWriter.toBuffer(Map.of("users", List.of(new User().withId("2")))));
+    assertThat(json.getJsonArray("users").getJsonObject(0).getString("id"), is("2"));
+  }
+}
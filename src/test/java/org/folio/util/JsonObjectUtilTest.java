@@ -0,0 +1,56 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+
+import org.folio.rest.jaxrs.model.CustomField;
+import org.folio.rest.jaxrs.model.Department;
+import org.junit.Test;
+
+public class JsonObjectUtilTest {
+
+  @Test
+  public void extractList() {
+    var departments = JsonObjectUtil.extractList(Buffer.buffer("""
+        {"resultInfo": {"facets": [{"a": 1}]},
+         "departments": [
+           {"id": "1", "name": "Accounting", "code": "ACC"},
+           {"id": "2", "name": "Ä", "code": "AE"}
+         ],
+         "totalRecords": 2}
+        """), "departments", Department.class);
+    assertThat(departments.size(), is(2));
+    assertThat(departments.get(0).getName(), is("Accounting"));
+    assertThat(departments.get(1).getName(), is("Ä"));
+    assertThat(departments.get(1).getCode(), is("AE"));
+  }
+
+  @Test
+  public void extractListOfSelectField() {
+    var customFields = JsonObjectUtil.extractList(Buffer.buffer("""
+        {"customFields": [{"refId": "color", "type": "SINGLE_SELECT_DROPDOWN",
+          "selectField": {"options": {"values": [{"id": "opt_0", "value": "red"}]}}}]}
+        """), "customFields", CustomField.class);
+    assertThat(customFields.get(0).getRefId(), is("color"));
+    assertThat(customFields.get(0).getSelectField().getOptions().getValues().get(0).getId(), is("opt_0"));
+  }
+
+  @Test
+  public void extractEmptyList() {
+    assertThat(JsonObjectUtil.extractList(Buffer.buffer("{\"departments\": []}"), "departments", Department.class)
+        .isEmpty(), is(true));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void extractListWithoutArray() {
+    JsonObjectUtil.extractList(Buffer.buffer("{\"totalRecords\": 0}"), "departments", Department.class);
+  }
+
+  @Test(expected = DecodeException.class)
+  public void extractListOfArray() {
+    JsonObjectUtil.extractList(Buffer.buffer("[]"), "departments", Department.class);
+  }
+}
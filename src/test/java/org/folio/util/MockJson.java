@@ -8,6 +8,7 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,6 +16,8 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MockJson extends AbstractVerticle {
   private static final Logger log = LogManager.getLogger(MockJson.class);
@@ -24,6 +27,10 @@ public class MockJson extends AbstractVerticle {
 
   String resource;
 
+  String batchUsersUrl;
+
+  final Map<String, Integer> requestCounts = new ConcurrentHashMap<>();
+
   public MockJson(String resource) {
     all = setMockContent(resource);
   }
@@ -47,11 +54,31 @@ public class MockJson extends AbstractVerticle {
     mocks = setMockContent(resource);
   }
 
+  /**
+   * Respond to POST requests to the url like a batch users endpoint, each user
+   * succeeds. Pass null to disable.
+   */
+  public void setBatchUsersUrl(String url) {
+    batchUsersUrl = url;
+  }
+
+  /**
+   * @return the number of requests received with the method and uri
+   */
+  public int getRequestCount(String method, String uri) {
+    return requestCounts.getOrDefault(method.toUpperCase() + " " + uri, 0);
+  }
+
   private void handle(RoutingContext context) {
     HttpServerRequest request = context.request();
     HttpServerResponse response = context.response();
     String method = request.method().name();
     String uri = request.uri();
+    requestCounts.merge(method + " " + uri, 1, Integer::sum);
+    if ("POST".equals(method) && uri.equals(batchUsersUrl)) {
+      handleBatchUsers(context);
+      return;
+    }
     if (lookupEntries(response, method, uri, all)) {
       return;
     }
@@ -64,6 +91,19 @@ public class MockJson extends AbstractVerticle {
     response.end("Not found in mock");
   }
 
+  private void handleBatchUsers(RoutingContext context) {
+    JsonArray results = new JsonArray();
+    JsonArray users = context.body().asJsonObject().getJsonArray("users");
+    for (int i = 0; i < users.size(); i++) {
+      results.add(new JsonObject()
+        .put("id", users.getJsonObject(i).getString("id"))
+        .put("status", 200));
+    }
+    context.response()
+      .putHeader("Content-Type", "application/json")
+      .end(new JsonObject().put("results", results).encode());
+  }
+
   private boolean lookupEntries(HttpServerResponse response, String method, String uri, JsonArray entries) {
     for (int i = 0; i < entries.size(); i++) {
       JsonObject entry = entries.getJsonObject(i);
@@ -104,6 +144,7 @@ public class MockJson extends AbstractVerticle {
     log.info("Running Mock JSON on port {}", port);
 
     Router router = Router.router(vertx);
+    router.route().handler(BodyHandler.create());
     router.routeWithRegex("/.*").handler(this::handle);
     vertx.createHttpServer().requestHandler(router).listen(port).<Void>mapEmpty().onComplete(promise);
   }
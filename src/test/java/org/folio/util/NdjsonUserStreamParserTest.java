@@ -0,0 +1,118 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+public class NdjsonUserStreamParserTest {
+
+  private final List<UserdataimportCollection> headers = new ArrayList<>();
+  private final List<User> users = new ArrayList<>();
+  private final List<String> invalidUsers = new ArrayList<>();
+
+  private final UserStreamParser.Listener listener = new UserStreamParser.Listener() {
+    @Override
+    public void header(UserdataimportCollection header) {
+      headers.add(header);
+    }
+
+    @Override
+    public void user(User user) {
+      assertThat(headers.size(), is(1));
+      users.add(user);
+    }
+
+    @Override
+    public void invalidUser(String externalSystemId, String username, String errorMessage) {
+      invalidUsers.add(errorMessage);
+    }
+
+    @Override
+    public void trailingField(String name) {
+      throw new AssertionError(name);
+    }
+  };
+
+  private void parse(String ndjson, int chunkSize) throws IOException {
+    NdjsonUserStreamParser parser = new NdjsonUserStreamParser(listener);
+    byte[] bytes = ndjson.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i += chunkSize) {
+      byte[] chunk = new byte[Math.min(chunkSize, bytes.length - i)];
+      System.arraycopy(bytes, i, chunk, 0, chunk.length);
+      parser.feed(chunk);
+    }
+    parser.end();
+  }
+
+  @Test
+  public void optionsInFirstLine() throws IOException {
+    parse("{\"sourceType\": \"test\", \"updateOnlyPresentFields\": true}\n"
+        + "{\"username\": \"a\", \"externalSystemId\": \"1\"}\r\n"
+        + "\n"
+        + "{\"username\": \"b\", \"externalSystemId\": \"2\"}", 7);
+
+    assertThat(headers.size(), is(1));
+    assertThat(headers.get(0).getSourceType(), is("test"));
+    assertThat(headers.get(0).getUpdateOnlyPresentFields(), is(true));
+    assertThat(users.stream().map(User::getUsername).toList(), contains("a", "b"));
+  }
+
+  @Test
+  public void withoutOptions() throws IOException {
+    parse("{\"username\": \"a\", \"externalSystemId\": \"1\"}\n", 1);
+
+    assertThat(headers.get(0).getSourceType(), is(nullValue()));
+    assertThat(users.size(), is(1));
+  }
+
+  @Test
+  public void invalidLinesAreReported() throws IOException {
+    parse("{\"username\": \"a\", \"externalSystemId\": \"1\"}\n"
+        + "{\"username\": \"b\", \n"
+        + "[]\n"
+        + "{\"username\": \"c\"}\n"
+        + "{\"username\": \"d\", \"externalSystemId\": \"4\"}\n", 1000);
+
+    assertThat(users.stream().map(User::getUsername).toList(), contains("a", "d"));
+    assertThat(invalidUsers.size(), is(3));
+    assertThat(invalidUsers.get(0), containsString("Line 2"));
+    assertThat(invalidUsers.get(1), is("Line 3: expected a JSON object"));
+    assertThat(invalidUsers.get(2), is("externalSystemId must not be null"));
+  }
+
+  @Test
+  public void firstLineWithUserFieldsIsNoOptions() throws IOException {
+    parse("{\"barcode\": \"1\", \"active\": true}\n"
+        + "{\"username\": \"a\", \"externalSystemId\": \"1\"}\n", 1000);
+
+    assertThat(headers.size(), is(1));
+    assertThat(headers.get(0).getSourceType(), is(nullValue()));
+    assertThat(invalidUsers, contains("username must not be null"));
+    assertThat(users.stream().map(User::getUsername).toList(), contains("a"));
+  }
+
+  @Test
+  public void noLines() throws IOException {
+    parse("", 1);
+
+    assertThat(headers.size(), is(1));
+    assertThat(users.isEmpty(), is(true));
+  }
+
+  @Test(expected = IOException.class)
+  public void lineTooLong() throws IOException {
+    parse("{\"username\": \"" + "x".repeat(NdjsonUserStreamParser.MAX_LINE_LENGTH) + "\"}", 4096);
+  }
+}
@@ -5,6 +5,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.folio.okapi.common.XOkapiHeaders;
 import org.junit.jupiter.api.BeforeAll;
@@ -22,6 +23,7 @@ import io.vertx.junit5.VertxTestContext;
 class OkapiUtilTest {
 
   static String okapiUrl;
+  static AtomicInteger cachedRequests = new AtomicInteger();
 
   @RegisterExtension
   RunTestOnContext runTestOnContext = new RunTestOnContext();
@@ -46,6 +48,12 @@ class OkapiUtilTest {
                           [{"id": "mod-users-0.0.1"}, {"id": "mod-users-0.0.2"}]
                           """);
           break;
+        case "/_/proxy/tenants/cached/modules?provide=custom-fields":
+          cachedRequests.incrementAndGet();
+          request.response().setStatusCode(200).end("""
+                          [{"id": "mod-users-4.5.6"}]
+                          """);
+          break;
         case "/_/proxy/tenants/diku/modules?provide=500":
           request.response().setStatusCode(500).end("big fail");
           break;
@@ -115,4 +123,28 @@ class OkapiUtilTest {
     }));
   }
 
+  @Test
+  void cached(VertxTestContext vtc) {
+    System.setProperty(ImportConfig.MODULE_ID_CACHE_TTL_SECONDS, "60");
+    var headers = new CaseInsensitiveMap<>(Map.of(
+        XOkapiHeaders.TENANT, "cached",
+        XOkapiHeaders.URL, okapiUrl));
+    setModuleIdForMultipleInterface("cached", "custom-fields")
+    .compose(x -> setModuleIdForMultipleInterface("cached", "custom-fields"))
+    .map(moduleId -> {
+      assertThat(moduleId, is("mod-users-4.5.6"));
+      assertThat(cachedRequests.get(), is(1));
+      assertThat(OkapiUtil.invalidateModuleId("custom-fields", "mod-users", headers), is(true));
+      assertThat(OkapiUtil.invalidateModuleId("custom-fields", "mod-users", headers), is(false));
+      return moduleId;
+    })
+    .compose(x -> setModuleIdForMultipleInterface("cached", "custom-fields"))
+    .onComplete(vtc.succeeding(moduleId -> {
+      System.clearProperty(ImportConfig.MODULE_ID_CACHE_TTL_SECONDS);
+      assertThat(moduleId, is("mod-users-4.5.6"));
+      assertThat(cachedRequests.get(), is(2));
+      vtc.completeNow();
+    }));
+  }
+
 }
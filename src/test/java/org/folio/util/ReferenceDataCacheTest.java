@@ -0,0 +1,106 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.folio.okapi.common.XOkapiHeaders;
+
+public class ReferenceDataCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private static Map<String, String> headers(String tenant) {
+    Map<String, String> headers = new HashMap<>();
+    headers.put(XOkapiHeaders.URL, "http://localhost:9130");
+    headers.put("x-okapi-tenant", tenant);
+    return headers;
+  }
+
+  private Future<Map<String, String>> get(String tenant, String name) {
+    return ReferenceDataCache.get(headers(tenant), name,
+        () -> Future.succeededFuture(Map.of(name, String.valueOf(loads.incrementAndGet()))));
+  }
+
+  @Before
+  public void setUp() {
+    System.setProperty(ImportConfig.REFERENCE_DATA_CACHE_TTL_SECONDS, "60");
+    ReferenceDataCache.clear();
+    ReferenceDataCache.clock = now::get;
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty(ImportConfig.REFERENCE_DATA_CACHE_TTL_SECONDS);
+    System.clearProperty(ImportConfig.REFERENCE_DATA_CACHE_MAX_ENTRIES);
+    ReferenceDataCache.clear();
+    ReferenceDataCache.clock = System::nanoTime;
+  }
+
+  @Test
+  public void cachedUntilExpired() {
+    long hits = ReferenceDataCache.getHits();
+    long misses = ReferenceDataCache.getMisses();
+
+    assertThat(get("a", "groups").result().get("groups"), is("1"));
+    assertThat(get("a", "groups").result().get("groups"), is("1"));
+    assertThat(get("b", "groups").result().get("groups"), is("2"));
+    now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+    assertThat(get("a", "groups").result().get("groups"), is("3"));
+
+    assertThat(ReferenceDataCache.getHits() - hits, is(1L));
+    assertThat(ReferenceDataCache.getMisses() - misses, is(3L));
+  }
+
+  @Test
+  public void invalidateTenant() {
+    get("a", "groups");
+    get("a", "addressTypes");
+    get("b", "groups");
+    ReferenceDataCache.invalidate(headers("a"));
+
+    assertThat(ReferenceDataCache.size(), is(1));
+    assertThat(get("a", "groups").result().get("groups"), is("4"));
+  }
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() {
+    System.setProperty(ImportConfig.REFERENCE_DATA_CACHE_MAX_ENTRIES, "2");
+    get("a", "groups");
+    get("b", "groups");
+    get("a", "groups");
+    get("c", "groups");
+
+    assertThat(ReferenceDataCache.size(), is(2));
+    assertThat(get("a", "groups").result().get("groups"), is("1"));
+    assertThat(get("b", "groups").result().get("groups"), is("4"));
+  }
+
+  @Test
+  public void failureIsNotCached() {
+    ReferenceDataCache.get(headers("a"), "groups", () -> Future.failedFuture("down"));
+
+    assertThat(get("a", "groups").result().get("groups"), is("1"));
+  }
+
+  @Test
+  public void disabled() {
+    System.setProperty(ImportConfig.REFERENCE_DATA_CACHE_TTL_SECONDS, "0");
+    get("a", "groups");
+    get("a", "groups");
+
+    assertThat(loads.get(), is(2));
+    assertThat(ReferenceDataCache.size(), is(0));
+  }
+}
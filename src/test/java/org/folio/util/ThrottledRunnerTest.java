@@ -0,0 +1,68 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class ThrottledRunnerTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void concurrencyIsCapped() {
+    List<Promise<Void>> running = new ArrayList<>();
+    ThrottledRunner<Integer> runner = new ThrottledRunner<>(vertx, 2, 0, i -> {
+      Promise<Void> promise = Promise.promise();
+      running.add(promise);
+      return promise.future();
+    });
+    Future<Void> result = runner.run(List.of(1, 2, 3, 4, 5));
+
+    assertThat(running.size(), is(2));
+    running.get(0).fail("failed");
+    assertThat(running.size(), is(3));
+    running.get(1).complete();
+    running.get(2).complete();
+    assertThat(running.size(), is(5));
+    assertThat(result.isComplete(), is(false));
+    running.get(3).complete();
+    running.get(4).fail("failed");
+    assertThat(result.succeeded(), is(true));
+  }
+
+  @Test
+  public void rateIsLimited(TestContext context) {
+    long start = System.nanoTime();
+    ThrottledRunner<Integer> runner = new ThrottledRunner<>(vertx, 10, 20, i -> Future.succeededFuture());
+    runner.run(List.of(1, 2, 3, 4, 5))
+        .onComplete(context.asyncAssertSuccess(x -> {
+          long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+          // 5 tasks at 20 per second start within 4 intervals of 50 ms
+          assertThat(elapsedMillis, greaterThanOrEqualTo(190L));
+        }));
+  }
+}
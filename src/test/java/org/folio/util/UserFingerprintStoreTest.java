@@ -0,0 +1,92 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.commons.collections4.map.CaseInsensitiveMap;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.RequestPreference;
+import org.folio.rest.jaxrs.model.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class UserFingerprintStoreTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Vertx vertx;
+  private final Map<String, String> headers = new CaseInsensitiveMap<>(Map.of(XOkapiHeaders.TENANT, "diku"));
+
+  @Before
+  public void setUp() throws IOException {
+    vertx = Vertx.vertx();
+    System.setProperty(ImportConfig.FINGERPRINT_DIRECTORY, temporaryFolder.newFolder().getPath());
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    System.clearProperty(ImportConfig.FINGERPRINT_DIRECTORY);
+    UserFingerprintStore.clear();
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  private static User user(String lastName) {
+    return new User().withExternalSystemId("x1").withPersonal(new Personal().withLastName(lastName));
+  }
+
+  @Test
+  public void fingerprint() {
+    String fingerprint = UserFingerprintStore.fingerprint(user("Ä"), null);
+    assertThat(UserFingerprintStore.fingerprint(user("Ä"), null), is(fingerprint));
+    assertThat(UserFingerprintStore.fingerprint(user("B"), null), is(not(fingerprint)));
+    assertThat(UserFingerprintStore.fingerprint(user("Ä"), new RequestPreference().withHoldShelf(true)),
+        is(not(fingerprint)));
+  }
+
+  @Test
+  public void saveAndRead(TestContext context) {
+    String fingerprint = UserFingerprintStore.fingerprint(user("Ä"), null);
+    UserFingerprintStore.get(vertx, headers)
+        .compose(store -> {
+          assertThat(store.isUnchanged("x1", fingerprint), is(false));
+          store.put("x1", fingerprint);
+          store.put("x2", "other");
+          store.remove("x2");
+          return store.save(vertx);
+        })
+        .compose(x -> {
+          UserFingerprintStore.clear();
+          return UserFingerprintStore.get(vertx, headers);
+        })
+        .onComplete(context.asyncAssertSuccess(store -> {
+          assertThat(store.size(), is(1));
+          assertThat(store.isUnchanged("x1", fingerprint), is(true));
+          assertThat(store.isUnchanged("x1", "other"), is(false));
+          assertThat(store.isUnchanged(null, fingerprint), is(false));
+        }));
+  }
+
+  @Test
+  public void unreadableFile(TestContext context) throws IOException {
+    Files.writeString(temporaryFolder.getRoot().toPath().resolve("unreadable.json"), "{");
+    System.setProperty(ImportConfig.FINGERPRINT_DIRECTORY, temporaryFolder.getRoot().getPath());
+    var unreadable = new CaseInsensitiveMap<>(Map.of(XOkapiHeaders.TENANT, "unreadable"));
+    UserFingerprintStore.get(vertx, unreadable)
+        .onComplete(context.asyncAssertSuccess(store -> assertThat(store.size(), is(0))));
+  }
+}
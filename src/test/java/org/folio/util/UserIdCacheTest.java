@@ -0,0 +1,76 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.folio.okapi.common.XOkapiHeaders;
+
+public class UserIdCacheTest {
+
+  private static Map<String, String> headers(String tenant) {
+    Map<String, String> headers = new HashMap<>();
+    headers.put(XOkapiHeaders.URL, "http://localhost:9130");
+    headers.put("x-okapi-tenant", tenant);
+    return headers;
+  }
+
+  @Before
+  public void setUp() {
+    System.setProperty(ImportConfig.USER_ID_CACHE_MAX_ENTRIES, "2");
+    UserIdCache.clear();
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty(ImportConfig.USER_ID_CACHE_MAX_ENTRIES);
+    UserIdCache.clear();
+  }
+
+  @Test
+  public void hitsAndMisses() {
+    long hits = UserIdCache.getHits();
+    long misses = UserIdCache.getMisses();
+    UserIdCache.put(headers("a"), "test_1", "id1");
+    assertThat(UserIdCache.get(headers("a"), "test_1"), is("id1"));
+    assertThat(UserIdCache.get(headers("b"), "test_1"), is(nullValue()));
+    assertThat(UserIdCache.get(headers("a"), "1"), is(nullValue()));
+    assertThat(UserIdCache.getHits() - hits, is(1L));
+    assertThat(UserIdCache.getMisses() - misses, is(2L));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    long evictions = UserIdCache.getEvictions();
+    UserIdCache.put(headers("a"), "1", "id1");
+    UserIdCache.put(headers("a"), "2", "id2");
+    UserIdCache.get(headers("a"), "1");
+    UserIdCache.put(headers("a"), "3", "id3");
+    assertThat(UserIdCache.size(), is(2));
+    assertThat(UserIdCache.getEvictions() - evictions, is(1L));
+    assertThat(UserIdCache.get(headers("a"), "1"), is("id1"));
+    assertThat(UserIdCache.get(headers("a"), "2"), is(nullValue()));
+  }
+
+  @Test
+  public void remove() {
+    UserIdCache.put(headers("a"), "1", "id1");
+    UserIdCache.remove(headers("a"), "1");
+    assertThat(UserIdCache.get(headers("a"), "1"), is(nullValue()));
+  }
+
+  @Test
+  public void disabled() {
+    System.setProperty(ImportConfig.USER_ID_CACHE_MAX_ENTRIES, "0");
+    assertThat(UserIdCache.isEnabled(), is(false));
+    UserIdCache.put(headers("a"), "1", "id1");
+    assertThat(UserIdCache.size(), is(0));
+  }
+}
@@ -0,0 +1,54 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class UserIdsTest {
+
+  @After
+  public void tearDown() {
+    UserIds.clock = System::currentTimeMillis;
+    System.clearProperty(ImportConfig.USER_ID_STRATEGY);
+  }
+
+  @Test
+  public void nameBased() {
+    UUID id = UserIds.nameBased("diku", "user_update");
+    assertThat(id.toString(), is("636121cc-0c60-5d86-af92-a668dffb1666"));
+    assertThat(id.version(), is(5));
+    assertThat(id.variant(), is(2));
+    assertThat(UserIds.nameBased("diku", "user_update"), is(id));
+    assertThat(UserIds.nameBased("other", "user_update"), is(not(id)));
+    assertThat(UserIds.nameBased("diku", "user_update2"), is(not(id)));
+  }
+
+  @Test
+  public void timeOrdered() {
+    UserIds.clock = () -> 0x0190F0A0B0C0L;
+    UUID first = UserIds.timeOrdered();
+    assertThat(first.version(), is(7));
+    assertThat(first.variant(), is(2));
+    assertThat(first.toString().substring(0, 13), is("0190f0a0-b0c0"));
+    UserIds.clock = () -> 0x0190F0A0B0C1L;
+    UUID second = UserIds.timeOrdered();
+    assertThat(first.toString().compareTo(second.toString()), is(lessThan(0)));
+  }
+
+  @Test
+  public void newUserId() {
+    assertThat(UUID.fromString(UserIds.newUserId("diku", "a")).version(), is(4));
+    System.setProperty(ImportConfig.USER_ID_STRATEGY, "name-based");
+    assertThat(UserIds.newUserId("diku", "user_update"), is("636121cc-0c60-5d86-af92-a668dffb1666"));
+    System.setProperty(ImportConfig.USER_ID_STRATEGY, "TIME_ORDERED");
+    assertThat(UUID.fromString(UserIds.newUserId("diku", "a")).version(), is(7));
+    System.setProperty(ImportConfig.USER_ID_STRATEGY, "unknown");
+    assertThat(UUID.fromString(UserIds.newUserId("diku", "a")).version(), is(4));
+  }
+}
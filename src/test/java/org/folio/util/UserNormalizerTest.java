@@ -0,0 +1,45 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.User;
+import org.junit.Test;
+
+public class UserNormalizerTest {
+
+  private static User user(Address... addresses) {
+    return new User()
+        .withId("1")
+        .withUsername("a")
+        .withDepartments(Set.of("d1", "d2"))
+        .withPersonal(new Personal().withLastName("Ä").withAddresses(new ArrayList<>(List.of(addresses))));
+  }
+
+  @Test
+  public void unchanged() {
+    var home = new Address().withAddressTypeId("home").withCity("X");
+    var work = new Address().withAddressTypeId("work").withCity("Y");
+    var existing = user(work, home)
+        .withCreatedDate(new Date(1))
+        .withUpdatedDate(new Date(2));
+    existing.setProxyFor(new ArrayList<>());
+    assertThat(UserNormalizer.isUnchanged(user(home, work), existing), is(true));
+  }
+
+  @Test
+  public void changed() {
+    var home = new Address().withAddressTypeId("home").withCity("X");
+    var otherHome = new Address().withAddressTypeId("home").withCity("Z");
+    assertThat(UserNormalizer.isUnchanged(user(home), user(otherHome)), is(false));
+    assertThat(UserNormalizer.isUnchanged(user(home), user(home).withBarcode("123")), is(false));
+    assertThat(UserNormalizer.isUnchanged(user(home), user(home, otherHome)), is(false));
+  }
+}
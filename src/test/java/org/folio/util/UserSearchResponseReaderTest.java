@@ -0,0 +1,64 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+
+import org.folio.model.exception.UserMappingFailedException;
+import org.junit.Test;
+
+public class UserSearchResponseReaderTest {
+
+  @Test
+  public void read() throws UserMappingFailedException {
+    var result = UserSearchResponseReader.read(Buffer.buffer("""
+        {"users": [
+          {"id": "1", "username": "a", "externalSystemId": "x1", "active": true,
+           "personal": {"lastName": "Ä", "addresses": [{"city": "}"}]}},
+          {"externalSystemId": "x2", "id": "2", "active": false, "unknown": {"nested": [1, 2]}},
+          {"id": "3", "externalSystemId": null}
+        ], "totalRecords": 42, "resultInfo": {"facets": []}}
+        """));
+    assertThat(result.totalRecords(), is(42));
+    assertThat(result.users().size(), is(3));
+
+    var first = result.users().get(0);
+    assertThat(first.getExternalSystemId(), is("x1"));
+    assertThat(first.getId(), is("1"));
+    assertThat(first.getUsername(), is("a"));
+    assertThat(first.isActive(), is(true));
+    assertThat(first.isDecoded(), is(false));
+    assertThat(first.getUser().getPersonal().getLastName(), is("Ä"));
+    assertThat(first.getUser().getPersonal().getAddresses().get(0).getCity(), is("}"));
+    assertThat(first.isDecoded(), is(true));
+
+    var second = result.users().get(1);
+    assertThat(second.getExternalSystemId(), is("x2"));
+    assertThat(second.isActive(), is(false));
+
+    assertThat(result.users().get(2).getExternalSystemId(), is(nullValue()));
+    assertThat(result.users().get(2).getUser().getId(), is("3"));
+  }
+
+  @Test(expected = UserMappingFailedException.class)
+  public void schemaMismatch() throws UserMappingFailedException {
+    UserSearchResponseReader.read(Buffer.buffer("""
+        {"users": [{"id": "1", "unknown": "x"}], "totalRecords": 1}
+        """)).users().get(0).getUser();
+  }
+
+  @Test
+  public void noUsers() {
+    var result = UserSearchResponseReader.read(Buffer.buffer("{}"));
+    assertThat(result.users().size(), is(0));
+    assertThat(result.totalRecords(), is(0));
+  }
+
+  @Test(expected = DecodeException.class)
+  public void notAnObject() {
+    UserSearchResponseReader.read(Buffer.buffer("[]"));
+  }
+}